@@ -0,0 +1,213 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+import javax.tools.DocumentationTool;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * End-to-end run of the {@link Asciidoclet}, through the {@link ToolProvider} javadoc API,
+ * on a {@link SyntheticCodebase} of the given size, reporting the wall time, the peak heap usage, the GC time
+ * and the size of the generated docs of each run.
+ * <p>
+ * Not a JMH benchmark, as it is about a whole javadoc run rather than a hot path:
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar org.hibernate.doclet.asciidoc.CodebaseBenchmark \
+ *     [--packages 20] [--types 10] [--members 6] [--asciidoc 0.5] [--source-blocks 0.2] [--links 2] [--seed 42] \
+ *     [--runs 1] [--report result.json] [--keep directory] [-- doclet options]
+ * </pre>
+ * Every run is done in this JVM, so the first one is a cold start and the following ones show how the doclet fares
+ * once warmed up. The peak heap is the sum of the peak usages of the heap memory pools over the run.
+ */
+public final class CodebaseBenchmark {
+
+	private CodebaseBenchmark() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		SyntheticCodebase codebase = new SyntheticCodebase();
+		int runs = 1;
+		Path report = null;
+		Path keep = null;
+		List<String> docletOptions = new ArrayList<>();
+		for ( int i = 0; i < args.length; i++ ) {
+			switch ( args[i] ) {
+				case "--packages":
+					codebase.packages = Integer.parseInt( args[++i] );
+					break;
+				case "--types":
+					codebase.types = Integer.parseInt( args[++i] );
+					break;
+				case "--members":
+					codebase.members = Integer.parseInt( args[++i] );
+					break;
+				case "--asciidoc":
+					codebase.asciidocDensity = Double.parseDouble( args[++i] );
+					break;
+				case "--source-blocks":
+					codebase.sourceBlockRatio = Double.parseDouble( args[++i] );
+					break;
+				case "--links":
+					codebase.links = Integer.parseInt( args[++i] );
+					break;
+				case "--seed":
+					codebase.seed = Long.parseLong( args[++i] );
+					break;
+				case "--runs":
+					runs = Integer.parseInt( args[++i] );
+					break;
+				case "--report":
+					report = Path.of( args[++i] );
+					break;
+				case "--keep":
+					keep = Path.of( args[++i] );
+					break;
+				case "--":
+					docletOptions.addAll( Arrays.asList( args ).subList( i + 1, args.length ) );
+					i = args.length;
+					break;
+				default:
+					throw new IllegalArgumentException( "Unknown option: " + args[i] );
+			}
+		}
+
+		Path directory = keep == null ? Files.createTempDirectory( "synthetic-codebase" ) : keep;
+		try {
+			List<Path> sources = codebase.generate( directory );
+			System.out.printf( Locale.ROOT, "%d packages, %d types, %d members, %d @asciidoc blocks, %d links%n",
+					codebase.packages, sources.size(), sources.size() * codebase.members,
+					codebase.asciidocBlocks(), codebase.linkCount() );
+			List<Result> results = new ArrayList<>( runs );
+			for ( int run = 0; run < runs; run++ ) {
+				Path output = directory.resolve( "docs" + run );
+				Result result = run( sources, directory.resolve( "jdk" ), output, docletOptions );
+				System.out.printf( Locale.ROOT,
+						"run %d: %d ms, peak heap %d MB, GC %d ms in %d collections, output %d files, %d KB%n",
+						run + 1, result.wallMillis, result.peakHeap >> 20, result.gcMillis, result.gcCount,
+						result.outputFiles, result.outputSize >> 10 );
+				results.add( result );
+			}
+			if ( report != null ) {
+				writeReport( report, codebase, sources.size(), results );
+			}
+		}
+		finally {
+			if ( keep == null ) {
+				delete( directory );
+			}
+		}
+	}
+
+	private static Result run(List<Path> sources, Path jdkElementList, Path output, List<String> docletOptions)
+			throws IOException {
+		List<String> options = new ArrayList<>( List.of(
+				"-doclet", Asciidoclet.class.getName(),
+				"-taglet", AsciidocTaglet.class.getName(),
+				"-d", output.toString(),
+				"-linkoffline", SyntheticCodebase.JDK_DOCS, jdkElementList.toString(),
+				"-Xdoclint:none",
+				"-quiet"
+		) );
+		options.addAll( docletOptions );
+
+		System.gc();
+		List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+		for ( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() ) {
+			if ( pool.getType() == MemoryType.HEAP && pool.isValid() ) {
+				pool.resetPeakUsage();
+				heapPools.add( pool );
+			}
+		}
+		long gcCount = -gcCount();
+		long gcMillis = -gcMillis();
+		long start = System.nanoTime();
+
+		DocumentationTool tool = ToolProvider.getSystemDocumentationTool();
+		try ( StandardJavaFileManager fileManager = tool.getStandardFileManager( null, null, null ) ) {
+			boolean success = tool.getTask( null, fileManager, null, null, options,
+					fileManager.getJavaFileObjectsFromPaths( sources ) ).call();
+			if ( !success ) {
+				throw new IllegalStateException( "javadoc failed" );
+			}
+		}
+
+		Result result = new Result();
+		result.wallMillis = ( System.nanoTime() - start ) / 1_000_000;
+		result.gcCount = gcCount + gcCount();
+		result.gcMillis = gcMillis + gcMillis();
+		for ( MemoryPoolMXBean pool : heapPools ) {
+			result.peakHeap += pool.getPeakUsage().getUsed();
+		}
+		try ( Stream<Path> files = Files.walk( output ) ) {
+			for ( Path file : (Iterable<Path>) files.filter( Files::isRegularFile )::iterator ) {
+				result.outputFiles++;
+				result.outputSize += Files.size( file );
+			}
+		}
+		return result;
+	}
+
+	private static long gcCount() {
+		long count = 0;
+		for ( GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans() ) {
+			count += Math.max( 0, gc.getCollectionCount() );
+		}
+		return count;
+	}
+
+	private static long gcMillis() {
+		long millis = 0;
+		for ( GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans() ) {
+			millis += Math.max( 0, gc.getCollectionTime() );
+		}
+		return millis;
+	}
+
+	private static void writeReport(Path report, SyntheticCodebase codebase, int types, List<Result> results)
+			throws IOException {
+		try ( Writer out = Files.newBufferedWriter( report ) ) {
+			out.write( String.format( Locale.ROOT,
+					"{\n  \"codebase\": {\"packages\": %d, \"types\": %d, \"members\": %d, \"asciidocBlocks\": %d, \"links\": %d, \"seed\": %d},\n",
+					codebase.packages, types, types * codebase.members, codebase.asciidocBlocks(), codebase.linkCount(),
+					codebase.seed ) );
+			out.write( "  \"runs\": [\n" );
+			for ( int i = 0; i < results.size(); i++ ) {
+				Result result = results.get( i );
+				out.write( String.format( Locale.ROOT,
+						"    {\"wallMillis\": %d, \"peakHeapBytes\": %d, \"gcMillis\": %d, \"gcCount\": %d, \"outputFiles\": %d, \"outputBytes\": %d}%s\n",
+						result.wallMillis, result.peakHeap, result.gcMillis, result.gcCount, result.outputFiles,
+						result.outputSize, i < results.size() - 1 ? "," : "" ) );
+			}
+			out.write( "  ]\n}\n" );
+		}
+	}
+
+	private static void delete(Path directory) throws IOException {
+		try ( Stream<Path> files = Files.walk( directory ) ) {
+			files.sorted( Comparator.reverseOrder() ).map( Path::toFile ).forEach( File::delete );
+		}
+	}
+
+	private static final class Result {
+		private long wallMillis;
+		private long peakHeap;
+		private long gcMillis;
+		private long gcCount;
+		private long outputFiles;
+		private long outputSize;
+	}
+}
@@ -0,0 +1,89 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time from starting a new JVM to the first converted {@code @asciidoc} block, with and without the CDS archive
+ * dumped by {@link AsciidocTraining}. Each invocation starts a JVM of its own, on the classpath of the benchmarks.
+ * The dynamic archive requires JDK 13 or later.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ColdStartBenchmark {
+
+	@Param({ "none", "archive" })
+	public String cds;
+
+	private Path archive;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		if ( "archive".equals( cds ) ) {
+			archive = Files.createTempFile( "asciidoclet", ".jsa" );
+			Files.delete( archive );
+			run( List.of( "-XX:ArchiveClassesAtExit=" + archive, "-Xlog:cds=off" ), AsciidocTraining.class );
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		if ( archive != null ) {
+			Files.deleteIfExists( archive );
+		}
+	}
+
+	@Benchmark
+	public void firstBlock() throws Exception {
+		run( archive == null ? List.of() : List.of( "-XX:SharedArchiveFile=" + archive ), FirstBlock.class );
+	}
+
+	private static void run(List<String> jvmOptions, Class<?> main) throws IOException, InterruptedException {
+		List<String> command = new ArrayList<>();
+		command.add( Path.of( System.getProperty( "java.home" ), "bin", "java" ).toString() );
+		command.addAll( jvmOptions );
+		command.add( "-cp" );
+		command.add( System.getProperty( "java.class.path" ) );
+		command.add( main.getName() );
+		Process process = new ProcessBuilder( command )
+				.redirectOutput( ProcessBuilder.Redirect.DISCARD )
+				.redirectError( ProcessBuilder.Redirect.DISCARD )
+				.start();
+		if ( process.waitFor() != 0 ) {
+			throw new IllegalStateException( "Failed: " + command );
+		}
+	}
+
+	/**
+	 * Boots a converter and converts a single block, just like the taglet does for the first block of a run.
+	 */
+	public static final class FirstBlock {
+		public static void main(String[] args) {
+			try ( AsciidocConverter converter = new AsciidocConverter() ) {
+				converter.convert( AsciidocSource.of( "Some *text* in _asciidoc_ with `code`." ) );
+			}
+		}
+	}
+}
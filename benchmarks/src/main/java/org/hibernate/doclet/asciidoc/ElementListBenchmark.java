@@ -0,0 +1,55 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing a large, synthetic {@code element-list}, with a module line every thousand packages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ElementListBenchmark {
+
+	@Param({ "50000" })
+	public int lines;
+
+	private byte[] elementList;
+
+	@Setup
+	public void setUp() {
+		StringBuilder sb = new StringBuilder();
+		for ( int i = 0; i < lines; i++ ) {
+			if ( i % 1000 == 0 ) {
+				sb.append( "module:org.example.module" ).append( i / 1000 ).append( '\n' );
+			}
+			else {
+				sb.append( "org.example.module" ).append( i / 1000 )
+						.append( ".pkg" ).append( i % 37 )
+						.append( ".sub" ).append( i ).append( '\n' );
+			}
+		}
+		elementList = sb.toString().getBytes( StandardCharsets.UTF_8 );
+	}
+
+	@Benchmark
+	public PackageIndex readElementList() {
+		return LinksHelper.readElementList( ByteBuffer.wrap( elementList ), "https://example.org/api/" );
+	}
+}
@@ -0,0 +1,180 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.DocumentationTool;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import jdk.javadoc.doclet.Doclet;
+import jdk.javadoc.doclet.DocletEnvironment;
+import jdk.javadoc.doclet.Reporter;
+
+/**
+ * Runs javadoc over the fixture sources and keeps the run open until {@link #close() closed},
+ * so that the benchmarks can work with the same {@link DocletEnvironment} a taglet would get.
+ * <p>
+ * javac isn't thread-safe, the environment must only be used by one thread at a time,
+ * which is the case for the JMH benchmarks using a single thread.
+ */
+final class JavadocFixture implements AutoCloseable {
+
+	private static final String[] SOURCES = {
+			"org/example/blocks/Blocks.java",
+			"org/example/deeply/nested/pkg/structure/Outer.java"
+	};
+
+	private static final ThreadLocal<JavadocFixture> CURRENT = new ThreadLocal<>();
+
+	private final CompletableFuture<DocletEnvironment> environment = new CompletableFuture<>();
+	private final CountDownLatch closed = new CountDownLatch( 1 );
+	private final Path sourceDirectory;
+	private final Thread thread;
+
+	private JavadocFixture(Path sourceDirectory) {
+		this.sourceDirectory = sourceDirectory;
+		this.thread = new Thread( this::runJavadoc, "javadoc-fixture" );
+		this.thread.setDaemon( true );
+	}
+
+	static JavadocFixture start() {
+		JavadocFixture fixture = new JavadocFixture( copySources() );
+		fixture.thread.start();
+		return fixture;
+	}
+
+	DocletEnvironment environment() {
+		return environment.join();
+	}
+
+	TypeElement type(String name) {
+		return environment().getElementUtils().getTypeElement( name );
+	}
+
+	Element member(String type, String name) {
+		for ( Element member : type( type ).getEnclosedElements() ) {
+			if ( member.getSimpleName().contentEquals( name ) ) {
+				return member;
+			}
+		}
+		throw new IllegalArgumentException( "No member " + name + " in " + type );
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed.countDown();
+		try {
+			thread.join();
+		}
+		catch (InterruptedException e) {
+			// the sources can go anyway, javadoc is done with them once the doclet returns
+			Thread.currentThread().interrupt();
+		}
+		try ( Stream<Path> files = Files.walk( sourceDirectory ) ) {
+			for ( Path file : (Iterable<Path>) files.sorted( Comparator.reverseOrder() )::iterator ) {
+				Files.delete( file );
+			}
+		}
+	}
+
+	private void runJavadoc() {
+		CURRENT.set( this );
+		StringWriter output = new StringWriter();
+		try {
+			DocumentationTool tool = ToolProvider.getSystemDocumentationTool();
+			try ( StandardJavaFileManager fm = tool.getStandardFileManager( null, null, null ) ) {
+				List<Path> files = new ArrayList<>();
+				for ( String source : SOURCES ) {
+					files.add( sourceDirectory.resolve( source ) );
+				}
+				Iterable<? extends JavaFileObject> objects = fm.getJavaFileObjectsFromPaths( files );
+				boolean success = tool.getTask( new PrintWriter( output ), fm, null, FixtureDoclet.class, List.of(), objects )
+						.call();
+				if ( !success ) {
+					environment.completeExceptionally( new IllegalStateException( "javadoc failed: " + output ) );
+				}
+			}
+		}
+		catch (RuntimeException | IOException e) {
+			environment.completeExceptionally( e );
+		}
+		finally {
+			CURRENT.remove();
+			// in case the doclet never got to run:
+			environment.completeExceptionally( new IllegalStateException( "javadoc did not run the doclet: " + output ) );
+		}
+	}
+
+	private static Path copySources() {
+		try {
+			Path directory = Files.createTempDirectory( "javadoc-fixture" );
+			for ( String source : SOURCES ) {
+				Path file = directory.resolve( source );
+				Files.createDirectories( file.getParent() );
+				try ( InputStream input = JavadocFixture.class.getResourceAsStream( "/fixture/" + source ) ) {
+					Files.copy( input, file );
+				}
+			}
+			return directory;
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException( "Unable to copy the fixture sources", e );
+		}
+	}
+
+	/**
+	 * Hands the environment over to the fixture and waits for it to be closed,
+	 * as the environment is only usable as long as the doclet is running.
+	 */
+	public static final class FixtureDoclet implements Doclet {
+
+		@Override
+		public void init(Locale locale, Reporter reporter) {
+		}
+
+		@Override
+		public String getName() {
+			return "javadoc-fixture";
+		}
+
+		@Override
+		public Set<? extends Option> getSupportedOptions() {
+			return Set.of();
+		}
+
+		@Override
+		public SourceVersion getSupportedSourceVersion() {
+			return SourceVersion.latest();
+		}
+
+		@Override
+		public boolean run(DocletEnvironment environment) {
+			JavadocFixture fixture = CURRENT.get();
+			fixture.environment.complete( environment );
+			try {
+				fixture.closed.await();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.lang.model.element.Element;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Link resolution between members of types nested a few levels deep.
+ * The {@code uncached} variants start from a fresh {@link LinksHelper}, i.e. measure the first time a target is linked.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LinksHelperBenchmark {
+
+	private static final String PACKAGE = "org.example.deeply.nested.pkg.structure.";
+
+	private JavadocFixture fixture;
+	private LinksHelper linksHelper;
+	private Element reference;
+	private Element element;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		fixture = JavadocFixture.start();
+		reference = fixture.member( PACKAGE + "Outer.Level1.Level2.Level3.Level4", "level4Method" );
+		element = fixture.member( PACKAGE + "Outer.Level1.Level2", "level2Method" );
+		linksHelper = newLinksHelper();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		fixture.close();
+	}
+
+	@Benchmark
+	public String javadocLink() {
+		return linksHelper.javadocLink( reference, element );
+	}
+
+	@Benchmark
+	public String relativeLink() {
+		return linksHelper.relativeLink( reference );
+	}
+
+	@Benchmark
+	public String javadocLinkUncached() {
+		return newLinksHelper().javadocLink( reference, element );
+	}
+
+	@Benchmark
+	public String relativeLinkUncached() {
+		return newLinksHelper().relativeLink( reference );
+	}
+
+	private LinksHelper newLinksHelper() {
+		return new LinksHelper( fixture.environment().getElementUtils(), List.of(), Map.of() );
+	}
+}
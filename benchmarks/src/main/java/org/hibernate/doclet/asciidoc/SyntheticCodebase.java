@@ -0,0 +1,174 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.module.ModuleDescriptor;
+import java.lang.module.ModuleFinder;
+import java.lang.module.ModuleReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Generates a source tree of configurable size for the {@link CodebaseBenchmark}:
+ * {@code packages} packages of {@code types} classes, each with {@code members} methods and fields.
+ * <p>
+ * A {@code asciidocDensity} fraction of the documented elements has an {@code @asciidoc} comment, the others a plain one.
+ * A {@code sourceBlockRatio} fraction of those blocks also has a highlighted source block,
+ * and each block has {@code links} {@code {@link}} tags, pointing at random to the generated elements
+ * or to JDK types, which are resolved through an element list of the JDK written next to the sources.
+ * The same seed always generates the same tree.
+ */
+final class SyntheticCodebase {
+
+	static final String JDK_DOCS = "https://docs.oracle.com/en/java/javase/17/docs/api/";
+
+	private static final String[] JDK_TARGETS = {
+			"java.util.List",
+			"java.util.Map#get(Object)",
+			"java.lang.String#length()",
+			"java.util.concurrent.ConcurrentHashMap",
+			"java.io.InputStream#read()",
+			"java.util.Optional#orElse(Object)"
+	};
+
+	int packages = 20;
+	int types = 10;
+	int members = 6;
+	double asciidocDensity = 0.5;
+	double sourceBlockRatio = 0.2;
+	int links = 2;
+	long seed = 42;
+
+	private int asciidocBlocks;
+	private int linkCount;
+
+	/**
+	 * Writes the sources to {@code directory/src} and the JDK element list to {@code directory/jdk}.
+	 *
+	 * @return the source files.
+	 */
+	List<Path> generate(Path directory) throws IOException {
+		Random random = new Random( seed );
+		List<Path> files = new ArrayList<>( packages * types );
+		for ( int p = 0; p < packages; p++ ) {
+			Path packageDirectory = directory.resolve( "src" ).resolve( packageName( p ).replace( '.', '/' ) );
+			Files.createDirectories( packageDirectory );
+			for ( int t = 0; t < types; t++ ) {
+				Path file = packageDirectory.resolve( "Type" + t + ".java" );
+				try ( Writer writer = Files.newBufferedWriter( file ) ) {
+					writeType( writer, random, p, t );
+				}
+				files.add( file );
+			}
+		}
+		writeJdkElementList( directory.resolve( "jdk" ) );
+		return files;
+	}
+
+	int asciidocBlocks() {
+		return asciidocBlocks;
+	}
+
+	int linkCount() {
+		return linkCount;
+	}
+
+	private void writeType(Writer writer, Random random, int p, int t) throws IOException {
+		writer.write( "package " + packageName( p ) + ";\n\n" );
+		writeComment( writer, random, "", "Type" + t );
+		writer.write( "public class Type" + t + " {\n" );
+		for ( int m = 0; m < members; m++ ) {
+			writer.write( "\n" );
+			writeComment( writer, random, "\t", memberName( m ) );
+			if ( isField( m ) ) {
+				writer.write( "\tpublic int " + memberName( m ) + ";\n" );
+			}
+			else {
+				writer.write( "\tpublic void " + memberName( m ) + "(String value, int count) {\n\t}\n" );
+			}
+		}
+		writer.write( "}\n" );
+	}
+
+	private void writeComment(Writer writer, Random random, String indent, String name) throws IOException {
+		writer.write( indent + "/**\n" );
+		if ( random.nextDouble() >= asciidocDensity ) {
+			writer.write( indent + " * Plain javadoc of {@code " + name + "}.\n" );
+			writer.write( indent + " */\n" );
+			return;
+		}
+		asciidocBlocks++;
+		writer.write( indent + " * @asciidoc\n" );
+		writer.write( indent + " * Documents `" + name + "`, with some *strong* and _emphasized_ text" );
+		for ( int i = 0; i < links; i++ ) {
+			writer.write( i == 0 ? "\n" + indent + " * and links to " : ",\n" + indent + " * " );
+			writer.write( "{@link " + linkTarget( random ) + "}" );
+			linkCount++;
+		}
+		writer.write( ".\n" );
+		if ( random.nextDouble() < sourceBlockRatio ) {
+			writer.write( indent + " *\n" );
+			writer.write( indent + " * [source,java]\n" );
+			writer.write( indent + " * ----\n" );
+			writer.write( indent + " * var type = new Type0();\n" );
+			writer.write( indent + " * type.method0( \"" + name + "\", " + random.nextInt( 100 ) + " );\n" );
+			writer.write( indent + " * ----\n" );
+		}
+		writer.write( indent + " */\n" );
+	}
+
+	private String linkTarget(Random random) {
+		if ( random.nextBoolean() ) {
+			return JDK_TARGETS[random.nextInt( JDK_TARGETS.length )];
+		}
+		String type = packageName( random.nextInt( packages ) ) + ".Type" + random.nextInt( types );
+		if ( members == 0 || random.nextBoolean() ) {
+			return type;
+		}
+		int m = random.nextInt( members );
+		return type + "#" + memberName( m ) + ( isField( m ) ? "" : "(String, int)" );
+	}
+
+	private static String packageName(int p) {
+		return "org.synthetic.module" + ( p % 4 ) + ".pkg" + p;
+	}
+
+	private static boolean isField(int m) {
+		return m % 3 == 2;
+	}
+
+	private static String memberName(int m) {
+		return isField( m ) ? "field" + m : "method" + m;
+	}
+
+	/*
+	 * The exported packages of the JDK modules, in the format of the element list of the JDK docs.
+	 */
+	private static void writeJdkElementList(Path directory) throws IOException {
+		Files.createDirectories( directory );
+		List<ModuleReference> modules = new ArrayList<>( ModuleFinder.ofSystem().findAll() );
+		modules.sort( Comparator.comparing( module -> module.descriptor().name() ) );
+		try ( Writer writer = Files.newBufferedWriter( directory.resolve( "element-list" ) ) ) {
+			for ( ModuleReference module : modules ) {
+				TreeSet<String> exported = new TreeSet<>();
+				for ( ModuleDescriptor.Exports exports : module.descriptor().exports() ) {
+					if ( !exports.isQualified() ) {
+						exported.add( exports.source() );
+					}
+				}
+				if ( exported.isEmpty() ) {
+					continue;
+				}
+				writer.write( "module:" + module.descriptor().name() + "\n" );
+				for ( String pkg : exported ) {
+					writer.write( pkg + "\n" );
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.lang.model.element.Element;
+
+import com.sun.source.doctree.DocTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link AsciidocTaglet#toString(List, Element)} on blocks of different size and content,
+ * i.e. writing the Asciidoc source and converting it, without any pre-rendering or caching.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TagletBenchmark {
+
+	/**
+	 * The method of the {@code Blocks} fixture whose {@code @asciidoc} block is converted.
+	 */
+	@Param({ "small", "medium", "code" })
+	public String block;
+
+	private JavadocFixture fixture;
+	private AsciidocTaglet taglet;
+	private List<DocTree> tags;
+	private Element element;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		fixture = JavadocFixture.start();
+		element = fixture.member( "org.example.blocks.Blocks", block );
+		tags = List.of( AsciidocPrerenderer.asciidocTag(
+				fixture.environment().getDocTrees().getDocCommentTree( element ) ) );
+		taglet = new AsciidocTaglet( RenderedBlocks.disabled() );
+		taglet.init( fixture.environment(), new JavadocFixture.FixtureDoclet() );
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		fixture.close();
+	}
+
+	@Benchmark
+	public String toHtml() {
+		return taglet.toString( tags, element );
+	}
+}
@@ -0,0 +1,95 @@
+package org.example.blocks;
+
+import org.example.deeply.nested.pkg.structure.Outer;
+
+/**
+ * Asciidoc blocks of various sizes for the taglet benchmarks.
+ */
+public class Blocks {
+
+	/**
+	 * @asciidoc
+	 * A *small* block with some `inline code`.
+	 */
+	public void small() {
+	}
+
+	/**
+	 * @asciidoc
+	 * == Medium block
+	 *
+	 * A few paragraphs with _emphasis_, *strong* text and `inline code`,
+	 * pointing to {@link Outer} and to {@link Outer.Level1.Level2.Level3.Level4#level4Method(String, int) a deeply nested method}.
+	 *
+	 * The second paragraph has a list:
+	 *
+	 * * the first item, referring to {@link Outer.Level1}
+	 * * the second item, with {@code some code}
+	 * * the third item, with a {@link Outer.Level1.Level2#level2Method() labelled link}
+	 *
+	 * And a table:
+	 *
+	 * [cols="1,2"]
+	 * |===
+	 * |Option |Description
+	 *
+	 * |first
+	 * |What the first option does.
+	 *
+	 * |second
+	 * |What the second option does.
+	 * |===
+	 *
+	 * NOTE: An admonition to finish it off.
+	 */
+	public void medium() {
+	}
+
+	/**
+	 * @asciidoc
+	 * A block that is mostly code:
+	 *
+	 * [source,java]
+	 * ----
+	 * public class Example {
+	 *     private final {@literal Map<String, List<Integer>>} values = new {@literal HashMap<>}();
+	 *
+	 *     public void add(String key, int value) {
+	 *         values.computeIfAbsent( key, k -> new {@literal ArrayList<>}() ).add( value );
+	 *     }
+	 *
+	 *     public int sum(String key) {
+	 *         int sum = 0;
+	 *         for ( int value : values.getOrDefault( key, List.of() ) ) {
+	 *             sum += value;
+	 *         }
+	 *         return sum;
+	 *     }
+	 * }
+	 * ----
+	 *
+	 * And some more:
+	 *
+	 * [source,java]
+	 * ----
+	 * try ( {@literal Stream<String>} lines = Files.lines( path ) ) {
+	 *     return lines.filter( line -> !line.isBlank() )
+	 *             .map( String::trim )
+	 *             .collect( Collectors.toList() );
+	 * }
+	 * catch (IOException e) {
+	 *     throw new UncheckedIOException( "Unable to read " + path, e );
+	 * }
+	 * ----
+	 *
+	 * [source,properties]
+	 * ----
+	 * # the same settings as in the doclet options
+	 * asciidoc.cache-dir = target/asciidoc-cache
+	 * asciidoc.cache-max-size = 100m
+	 * asciidoc.prerender-workers = 4
+	 * ----
+	 */
+	public void code() {
+	}
+}
@@ -0,0 +1,34 @@
+package org.example.deeply.nested.pkg.structure;
+
+/**
+ * Types nested a few levels deep, in a package a few levels deep, to exercise the link resolution.
+ */
+public class Outer {
+
+	public void outerMethod() {
+	}
+
+	public static class Level1 {
+
+		public void level1Method() {
+		}
+
+		public static class Level2 {
+
+			public void level2Method() {
+			}
+
+			public static class Level3 {
+
+				public void level3Method() {
+				}
+
+				public static class Level4 {
+
+					public void level4Method(String value, int count) {
+					}
+				}
+			}
+		}
+	}
+}
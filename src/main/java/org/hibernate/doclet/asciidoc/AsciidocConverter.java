@@ -0,0 +1,286 @@
+package org.hibernate.doclet.asciidoc;
+
+import static org.asciidoctor.extension.InlineMacroProcessor.REGEXP;
+import static org.asciidoctor.jruby.AsciidoctorJRuby.Factory.create;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.asciidoctor.Asciidoctor;
+import org.asciidoctor.Attributes;
+import org.asciidoctor.Options;
+import org.asciidoctor.jruby.internal.JRubyRuntimeContext;
+
+/**
+ * Wraps a single Asciidoctor runtime configured the way the taglet needs it,
+ * i.e. with the {@link JavadocLinkMacroProcessor} registered.
+ * <p>
+ * An instance is not meant to be shared between threads: each thread converting the markup should use its own converter.
+ */
+final class AsciidocConverter implements AutoCloseable {
+
+	// touches the constructs most of the blocks are made of: paragraphs, inline markup, links and source blocks
+	private static final AsciidocSource WARM_UP_SOURCE = new AsciidocSource(
+			"Some *text* in _asciidoc_ with `code`\n"
+					+ "and a link javadoc:0[] .\n"
+					+ "\n"
+					+ "[source,java]\n"
+					+ "----\n"
+					+ "var a = new FileOutputStream(\"file.name\");\n"
+					+ "----\n",
+			List.of( new AsciidocSource.Link( "../java/lang/Object.html#wait(long)", "Object#wait(long)" ) )
+	);
+
+	/*
+	 * Anything that makes the result of a block depend on the blocks converted before it in the same document
+	 * (sections and their generated ids, attribute entries, numbered captions, footnotes, counters),
+	 * or a trailing construct that could swallow the boundary into itself, excludes the block from a batch.
+	 */
+	private static final Pattern NOT_BATCHABLE = Pattern.compile(
+			"(?m)^(?:=+|#+)[ \\t]|^:!?[\\w-]*!?:|^\\.[^.\\s]|footnote(?:ref)?:|\\{counter2?:|include::|toc::"
+	);
+	private static final Pattern DANGLING_END = Pattern.compile( "(?:::|;;|\\+)\\s*$" );
+	private static final String BOUNDARY_PREFIX = "<!--asciidoc-fragment-boundary-";
+	private static final Pattern LINK_PLACEHOLDER = Pattern.compile( "javadoc:(\\d+)\\[\\]" );
+	private static final String CACHED_HIGHLIGHTER = "cached-coderay-adapter.rb";
+	// changed whenever the doclet renders the same source differently, so that the cached fragments are not reused
+	private static final int OUTPUT_VERSION = 2;
+
+	/**
+	 * Highlighted source blocks carry their colors in inline {@code style} attributes.
+	 */
+	static final String HIGHLIGHT_INLINE_STYLES = "style";
+	/**
+	 * Highlighted source blocks refer to the {@link #highlightStylesheet() stylesheet} through CSS classes.
+	 */
+	static final String HIGHLIGHT_CSS_CLASSES = "class";
+
+	private final Asciidoctor asciidoctor;
+	private final JavadocLinkMacroProcessor linkProcessor;
+	private final AsciidocIncludeProcessor includeProcessor = new AsciidocIncludeProcessor();
+	private volatile String highlightCss = HIGHLIGHT_INLINE_STYLES;
+	private volatile AsciidocIncludes includes = AsciidocIncludes.NONE;
+
+	AsciidocConverter() {
+		asciidoctor = create();
+		// Map should be modifiable (seems like asciidoc internals like to change it.
+		// Specifying regexp here to find the text-snippets to replace, as things aren't picked up automagically ...
+		Map<String, Object> config = new HashMap<>();
+		config.put( REGEXP, "javadoc:([A-Za-z0-9#.$]+)\\[(.*?)\\]" );
+		linkProcessor = new JavadocLinkMacroProcessor( "javadoc", config );
+		asciidoctor.javaExtensionRegistry().inlineMacro( linkProcessor );
+		asciidoctor.javaExtensionRegistry().includeProcessor( includeProcessor );
+		try ( InputStream highlighter = AsciidocConverter.class.getResourceAsStream( CACHED_HIGHLIGHTER ) ) {
+			asciidoctor.rubyExtensionRegistry().loadClass( highlighter );
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException( "Unable to load the syntax highlighter", e );
+		}
+	}
+
+	/**
+	 * @param highlightCss either {@link #HIGHLIGHT_INLINE_STYLES} or {@link #HIGHLIGHT_CSS_CLASSES}.
+	 */
+	void highlightCss(String highlightCss) {
+		this.highlightCss = highlightCss;
+	}
+
+	/**
+	 * Sets the files the {@code include::} directives may point to and the attributes all the blocks are converted with.
+	 */
+	void includes(AsciidocIncludes includes) {
+		this.includes = includes;
+		includeProcessor.includes( includes );
+	}
+
+	/**
+	 * @return the stylesheet the highlighted source blocks need when converted with {@link #HIGHLIGHT_CSS_CLASSES}.
+	 */
+	String highlightStylesheet() {
+		return JRubyRuntimeContext.get( asciidoctor )
+				.evalScriptlet( "Asciidoctor::SyntaxHighlighter::CodeRayAdapter.read_stylesheet" )
+				.asJavaString();
+	}
+
+	String convert(AsciidocSource source) {
+		linkProcessor.links( source.links() );
+		try {
+			Attributes attributes = attributes( highlightCss );
+			if ( !includes.attributes().isEmpty() ) {
+				attributes.setAttributes( includes.attributes() );
+			}
+			return asciidoctor.convert( source.text(), Options.builder().attributes( attributes ).build() );
+		}
+		finally {
+			linkProcessor.links( List.of() );
+		}
+	}
+
+	/**
+	 * Converts the sources, joining as many of them as possible into a single document, so that the per-call overhead
+	 * of a conversion is paid once for the whole batch instead of once per source.
+	 * The sources are separated by unique passthrough markers, which are then used to split the HTML back.
+	 * Sources whose HTML could be affected by the rest of the document are converted on their own.
+	 *
+	 * @return the HTML of each source, in the same order as the sources.
+	 */
+	List<String> convert(List<AsciidocSource> sources) {
+		String[] results = new String[sources.size()];
+		List<Integer> batch = new ArrayList<>( sources.size() );
+		for ( int i = 0; i < sources.size(); i++ ) {
+			if ( isBatchable( sources.get( i ).text() ) ) {
+				batch.add( i );
+			}
+			else {
+				results[i] = convert( sources.get( i ) );
+			}
+		}
+
+		String[] parts = batch.size() < 2 ? null : convertBatch( sources, batch );
+		for ( int i = 0; i < batch.size(); i++ ) {
+			int index = batch.get( i );
+			// if the batch didn't split into the expected number of fragments,
+			// something in one of the sources swallowed a boundary, and we just convert them one by one:
+			results[index] = parts == null ? convert( sources.get( index ) ) : parts[i];
+		}
+		return Arrays.asList( results );
+	}
+
+	static boolean isBatchable(String source) {
+		return !NOT_BATCHABLE.matcher( source ).find() && !DANGLING_END.matcher( source ).find();
+	}
+
+	private String[] convertBatch(List<AsciidocSource> sources, List<Integer> batch) {
+		String boundary = boundary( sources, batch );
+		StringBuilder document = new StringBuilder();
+		List<AsciidocSource.Link> links = new ArrayList<>();
+		for ( int i = 0; i < batch.size(); i++ ) {
+			if ( i > 0 ) {
+				document.append( "\n\n++++\n" ).append( boundary ).append( "\n++++\n\n" );
+			}
+			AsciidocSource source = sources.get( batch.get( i ) );
+			appendRenumbered( document, source, links.size() );
+			links.addAll( source.links() );
+		}
+
+		String[] parts = convert( new AsciidocSource( document.toString(), links ) ).split( Pattern.quote( boundary ), -1 );
+		if ( parts.length != batch.size() ) {
+			return null;
+		}
+		for ( int i = 0; i < parts.length; i++ ) {
+			// blocks of a document are joined with new lines, which aren't part of the fragments' HTML:
+			String part = parts[i];
+			int start = i > 0 && part.startsWith( "\n" ) ? 1 : 0;
+			int end = i < parts.length - 1 && part.endsWith( "\n" ) ? part.length() - 1 : part.length();
+			parts[i] = part.substring( start, Math.max( start, end ) );
+		}
+		return parts;
+	}
+
+	/*
+	 * Each source numbers its links from 0, while in a batch they all share a single side table:
+	 */
+	private static void appendRenumbered(StringBuilder document, AsciidocSource source, int offset) {
+		if ( offset == 0 || source.links().isEmpty() ) {
+			document.append( source.text() );
+			return;
+		}
+		Matcher matcher = LINK_PLACEHOLDER.matcher( source.text() );
+		int last = 0;
+		while ( matcher.find() ) {
+			document.append( source.text(), last, matcher.start( 1 ) )
+					.append( Integer.parseInt( matcher.group( 1 ) ) + offset );
+			last = matcher.end( 1 );
+		}
+		document.append( source.text(), last, source.text().length() );
+	}
+
+	private static String boundary(List<AsciidocSource> sources, List<Integer> batch) {
+		while ( true ) {
+			String boundary = BOUNDARY_PREFIX + UUID.randomUUID() + "-->";
+			if ( batch.stream().noneMatch( i -> sources.get( i ).text().contains( boundary ) ) ) {
+				return boundary;
+			}
+		}
+	}
+
+	/**
+	 * Converts a representative snippet, so that the hot paths of the runtime are loaded and compiled
+	 * before the actual blocks are converted.
+	 */
+	void warmUp() {
+		convert( WARM_UP_SOURCE );
+	}
+
+	/**
+	 * @return a string identifying the conversion settings, so that the results of different settings can be told apart.
+	 */
+	static String fingerprint(String highlightCss) {
+		return new TreeMap<>( attributeEntries( highlightCss ) ) + ";asciidoctorj=" + AsciidoctorjVersion.VERSION
+				+ ";output=" + OUTPUT_VERSION;
+	}
+
+	/**
+	 * @return the version of the code the class comes from: the version of its jar's manifest if it has one,
+	 * otherwise, e.g. for a shaded jar or unpacked classes, a hash of the jar or of the classes directory.
+	 */
+	static String version(Class<?> type) {
+		String version = type.getPackage().getImplementationVersion();
+		if ( version != null ) {
+			return version;
+		}
+		CodeSource codeSource = type.getProtectionDomain().getCodeSource();
+		if ( codeSource == null || codeSource.getLocation() == null ) {
+			return "unknown";
+		}
+		try {
+			return "sha256:" + CacheFiles.sha256( Path.of( codeSource.getLocation().toURI() ) );
+		}
+		catch (IOException | URISyntaxException | RuntimeException e) {
+			return "unknown";
+		}
+	}
+
+	private static Attributes attributes(String highlightCss) {
+		return Attributes.builder().attributes( attributeEntries( highlightCss ) ).build();
+	}
+
+	/*
+	 * Kept as a plain map, so that the fingerprint can list them without going through the deprecated Attributes#map().
+	 */
+	private static Map<String, Object> attributeEntries(String highlightCss) {
+		Map<String, Object> entries = new HashMap<>();
+		entries.put( Attributes.SOURCE_HIGHLIGHTER, "coderay" );
+		// inline styles by default -- so that nothing but the pages is needed.
+		// with `class`, the doclet copies the stylesheet to the output dir using the file manager.
+		entries.put( "coderay-css", highlightCss );
+		// the value Attributes#setCopyCss(true) puts in
+		entries.put( Attributes.COPY_CSS, "" );
+		return entries;
+	}
+
+	@Override
+	public void close() {
+		asciidoctor.shutdown();
+	}
+
+	/*
+	 * Computed once, on first use, as hashing a jar takes a while.
+	 */
+	private static final class AsciidoctorjVersion {
+		private static final String VERSION = version( Asciidoctor.class );
+	}
+}
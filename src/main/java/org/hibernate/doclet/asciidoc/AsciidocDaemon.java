@@ -0,0 +1,350 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A long-lived process keeping warm Asciidoctor runtimes, so that each javadoc run of a build doesn't have to boot JRuby
+ * and warm it up again: see the {@code --asciidoc-daemon} option of the {@link Asciidoclet}.
+ * <p>
+ * Started with {@code java -cp <doclet classpath> org.hibernate.doclet.asciidoc.AsciidocDaemon <directory> [<idle timeout> [<converters>]]},
+ * the daemon listens on a loopback port, and writes that port along with a random token to {@value #PORT_FILE}
+ * in the directory, readable by its owner only. A client has to present the token,
+ * so only whoever can read the file gets to use the daemon. The daemon stops once it got no request for the idle timeout,
+ * one hour by default. A connection that stays idle for as long is closed, so a client that went away without closing it
+ * doesn't keep the daemon alive.
+ * <p>
+ * The protocol is a handshake (version, token, conversion settings, include directories and attributes)
+ * answered with a status,
+ * followed by any number of requests, each a list of sources answered with the HTML of each of them,
+ * or {@code null} for the ones that couldn't be converted. Strings are sent as their length followed by their UTF-8 bytes.
+ */
+public final class AsciidocDaemon {
+
+	static final String PORT_FILE = "daemon.port";
+	static final int PROTOCOL_VERSION = 2;
+	static final int STATUS_OK = 0;
+	static final int STATUS_REJECTED = 1;
+
+	private static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofHours( 1 );
+	private static final int WARM_UP_ROUNDS = 20;
+	private static final int MAX_HANDSHAKE_STRING = 4096;
+	private static final int MAX_HANDSHAKE_ENTRIES = 4096;
+	private static final int MAX_ATTRIBUTE_VALUE = 64 * 1024;
+
+	private final Path portFile;
+	private final Duration idleTimeout;
+	private final BlockingQueue<AsciidocConverter> converters;
+	private final String token;
+	private final AtomicInteger activeConnections = new AtomicInteger();
+	private volatile long lastActivity = System.nanoTime();
+
+	AsciidocDaemon(Path directory, Duration idleTimeout, int converters) {
+		this.portFile = directory.resolve( PORT_FILE );
+		this.idleTimeout = idleTimeout;
+		this.converters = new ArrayBlockingQueue<>( converters );
+		byte[] random = new byte[16];
+		new SecureRandom().nextBytes( random );
+		StringBuilder sb = new StringBuilder();
+		for ( byte b : random ) {
+			sb.append( Character.forDigit( ( b >> 4 ) & 0xF, 16 ) ).append( Character.forDigit( b & 0xF, 16 ) );
+		}
+		this.token = sb.toString();
+	}
+
+	public static void main(String[] args) throws IOException {
+		if ( args.length < 1 || args.length > 3 ) {
+			System.err.println( "Usage: AsciidocDaemon <directory> [<idle timeout, e.g. 30m> [<converters>]]" );
+			System.exit( 2 );
+		}
+		new AsciidocDaemon(
+				Path.of( args[0] ),
+				args.length > 1 ? Asciidoclet.parseDuration( args[1] ) : DEFAULT_IDLE_TIMEOUT,
+				args.length > 2 ? Integer.parseInt( args[2] ) : 1
+		).serve();
+	}
+
+	/**
+	 * Boots the converters and serves the clients until the daemon has been idle for the idle timeout.
+	 */
+	void serve() throws IOException {
+		while ( converters.remainingCapacity() > 0 ) {
+			AsciidocConverter converter = new AsciidocConverter();
+			for ( int i = 0; i < WARM_UP_ROUNDS; i++ ) {
+				converter.warmUp();
+			}
+			converters.add( converter );
+		}
+
+		ExecutorService executor = Executors.newCachedThreadPool( runnable -> {
+			Thread thread = new Thread( runnable, "asciidoc-daemon-connection" );
+			thread.setDaemon( true );
+			return thread;
+		} );
+		try ( ServerSocket server = new ServerSocket( 0, 50, InetAddress.getLoopbackAddress() ) ) {
+			// the temporary file the content is written to first is only readable by its owner, and so is the port file then:
+			CacheFiles.writeAtomically( portFile,
+					( server.getLocalPort() + "\n" + token + "\n" ).getBytes( StandardCharsets.UTF_8 ) );
+			Runtime.getRuntime().addShutdownHook( new Thread( this::deletePortFile ) );
+			System.out.println( "Asciidoc daemon listening on port " + server.getLocalPort() + ", see " + portFile );
+
+			server.setSoTimeout( (int) Math.min( idleTimeout.toMillis(), Duration.ofMinutes( 1 ).toMillis() ) );
+			int connectionTimeout = (int) Math.min( idleTimeout.toMillis(), Integer.MAX_VALUE );
+			// booting and warming up the converters doesn't count
+			lastActivity = System.nanoTime();
+			while ( true ) {
+				Socket socket;
+				try {
+					socket = server.accept();
+				}
+				catch (SocketTimeoutException e) {
+					if ( activeConnections.get() == 0 && System.nanoTime() - lastActivity >= idleTimeout.toNanos() ) {
+						break;
+					}
+					continue;
+				}
+				activeConnections.incrementAndGet();
+				try {
+					socket.setSoTimeout( connectionTimeout );
+				}
+				catch (IOException e) {
+					activeConnections.decrementAndGet();
+					socket.close();
+					continue;
+				}
+				executor.execute( () -> handle( socket ) );
+			}
+		}
+		finally {
+			executor.shutdownNow();
+			deletePortFile();
+			for ( AsciidocConverter converter : converters ) {
+				converter.close();
+			}
+		}
+	}
+
+	private void handle(Socket socket) {
+		try ( Socket s = socket;
+				DataInputStream in = new DataInputStream( new BufferedInputStream( s.getInputStream() ) );
+				DataOutputStream out = new DataOutputStream( new BufferedOutputStream( s.getOutputStream() ) ) ) {
+			int version = in.readInt();
+			String clientToken = readString( in, MAX_HANDSHAKE_STRING );
+			String highlightCss = readString( in, MAX_HANDSHAKE_STRING );
+			String fingerprint = readString( in, MAX_HANDSHAKE_STRING );
+			List<Path> includeDirectories = new ArrayList<>();
+			Map<String, String> attributes = new LinkedHashMap<>();
+			if ( version == PROTOCOL_VERSION ) {
+				for ( int i = readCount( in ); i > 0; i-- ) {
+					includeDirectories.add( Path.of( readRequiredString( in, MAX_HANDSHAKE_STRING ) ) );
+				}
+				for ( int i = readCount( in ); i > 0; i-- ) {
+					attributes.put( readRequiredString( in, MAX_HANDSHAKE_STRING ),
+							readRequiredString( in, MAX_ATTRIBUTE_VALUE ) );
+				}
+			}
+			AsciidocIncludes includes = AsciidocIncludes.NONE;
+			String rejection = rejection( version, clientToken, highlightCss );
+			if ( rejection == null ) {
+				try {
+					// one instance per connection, i.e. per javadoc run, and so are the included files it caches
+					includes = AsciidocIncludes.of( includeDirectories, attributes );
+				}
+				catch (IOException | RuntimeException e) {
+					rejection = "Unable to read the include directories " + includeDirectories + ": " + e;
+				}
+			}
+			// e.g. a daemon started from another version of the doclet, or with another version of AsciidoctorJ
+			if ( rejection == null
+					&& !( AsciidocConverter.fingerprint( highlightCss ) + includes.fingerprint() ).equals( fingerprint ) ) {
+				rejection = "The daemon converts with different settings: "
+						+ AsciidocConverter.fingerprint( highlightCss ) + includes.fingerprint();
+			}
+			if ( rejection != null ) {
+				out.writeInt( STATUS_REJECTED );
+				writeString( out, rejection );
+				out.flush();
+				return;
+			}
+			out.writeInt( STATUS_OK );
+			out.flush();
+
+			while ( true ) {
+				int count;
+				try {
+					count = in.readInt();
+				}
+				catch (EOFException e) {
+					return;
+				}
+				int batchSize = Math.max( 1, in.readInt() );
+				List<AsciidocSource> sources = new ArrayList<>( count );
+				for ( int i = 0; i < count; i++ ) {
+					sources.add( readSource( in ) );
+				}
+				lastActivity = System.nanoTime();
+				for ( String html : convert( sources, highlightCss, includes, batchSize ) ) {
+					writeString( out, html );
+				}
+				out.flush();
+				lastActivity = System.nanoTime();
+			}
+		}
+		catch (IOException e) {
+			// the client went away, or stayed idle for the idle timeout, nothing we can do about it
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			activeConnections.decrementAndGet();
+		}
+	}
+
+	private String rejection(int version, String clientToken, String highlightCss) {
+		if ( version != PROTOCOL_VERSION ) {
+			return "Unsupported protocol version " + version + ", the daemon speaks version " + PROTOCOL_VERSION;
+		}
+		if ( clientToken == null || !MessageDigest.isEqual(
+				token.getBytes( StandardCharsets.UTF_8 ), clientToken.getBytes( StandardCharsets.UTF_8 ) ) ) {
+			return "Invalid token";
+		}
+		if ( !AsciidocConverter.HIGHLIGHT_INLINE_STYLES.equals( highlightCss )
+				&& !AsciidocConverter.HIGHLIGHT_CSS_CLASSES.equals( highlightCss ) ) {
+			return "Unknown highlight CSS mode: " + highlightCss;
+		}
+		return null;
+	}
+
+	/*
+	 * Each request gets a converter of its own for as long as it takes to convert its sources,
+	 * the requests of the javadoc runs of a parallel build wait for one to become available otherwise.
+	 */
+	private List<String> convert(List<AsciidocSource> sources, String highlightCss, AsciidocIncludes includes,
+			int batchSize) throws InterruptedException {
+		List<String> html = new ArrayList<>( sources.size() );
+		AsciidocConverter converter = converters.take();
+		try {
+			converter.highlightCss( highlightCss );
+			converter.includes( includes );
+			for ( int start = 0; start < sources.size(); start += batchSize ) {
+				List<AsciidocSource> batch = sources.subList( start, Math.min( start + batchSize, sources.size() ) );
+				if ( batch.size() > 1 ) {
+					try {
+						html.addAll( converter.convert( batch ) );
+						continue;
+					}
+					catch (RuntimeException e) {
+						// one of the blocks cannot be converted, fall back to converting them one by one
+					}
+				}
+				for ( AsciidocSource source : batch ) {
+					try {
+						html.add( converter.convert( source ) );
+					}
+					catch (RuntimeException e) {
+						// the client converts it on its own and reports the problem
+						html.add( null );
+					}
+				}
+			}
+			return html;
+		}
+		finally {
+			converters.put( converter );
+		}
+	}
+
+	private void deletePortFile() {
+		try {
+			// another daemon may have been started in the meantime, don't pull its file from under it
+			if ( Files.exists( portFile ) && Files.readString( portFile ).contains( token ) ) {
+				Files.delete( portFile );
+			}
+		}
+		catch (IOException e) {
+			// a stale file only makes the clients fail to connect, and fall back to converting on their own
+		}
+	}
+
+	private static int readCount(DataInputStream in) throws IOException {
+		int count = in.readInt();
+		if ( count < 0 || count > MAX_HANDSHAKE_ENTRIES ) {
+			throw new IOException( "Unexpected count: " + count );
+		}
+		return count;
+	}
+
+	private static String readRequiredString(DataInputStream in, int maxLength) throws IOException {
+		String value = readString( in, maxLength );
+		if ( value == null ) {
+			throw new IOException( "Unexpected null string" );
+		}
+		return value;
+	}
+
+	static void writeSource(DataOutputStream out, AsciidocSource source) throws IOException {
+		writeString( out, source.text() );
+		out.writeInt( source.links().size() );
+		for ( AsciidocSource.Link link : source.links() ) {
+			writeString( out, link.href() );
+			writeString( out, link.label() );
+		}
+	}
+
+	private static AsciidocSource readSource(DataInputStream in) throws IOException {
+		String text = readString( in, Integer.MAX_VALUE );
+		int count = in.readInt();
+		List<AsciidocSource.Link> links = new ArrayList<>( count );
+		for ( int i = 0; i < count; i++ ) {
+			links.add( new AsciidocSource.Link( readString( in, Integer.MAX_VALUE ), readString( in, Integer.MAX_VALUE ) ) );
+		}
+		return new AsciidocSource( text, links );
+	}
+
+	static void writeString(DataOutputStream out, String value) throws IOException {
+		if ( value == null ) {
+			out.writeInt( -1 );
+			return;
+		}
+		byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+		out.writeInt( bytes.length );
+		out.write( bytes );
+	}
+
+	static String readString(DataInputStream in, int maxLength) throws IOException {
+		int length = in.readInt();
+		if ( length < 0 ) {
+			return null;
+		}
+		if ( length > maxLength ) {
+			throw new IOException( "Unexpected string length: " + length );
+		}
+		byte[] bytes = new byte[length];
+		in.readFully( bytes );
+		return new String( bytes, StandardCharsets.UTF_8 );
+	}
+}
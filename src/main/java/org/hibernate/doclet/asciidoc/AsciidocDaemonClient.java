@@ -0,0 +1,144 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends the {@code @asciidoc} blocks to a running {@link AsciidocDaemon}, over a single connection for the whole run.
+ * A client is not thread-safe.
+ */
+final class AsciidocDaemonClient implements AutoCloseable {
+
+	private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+	// a request is a few hundred blocks at most, a daemon taking longer than that is most likely stuck
+	private static final int READ_TIMEOUT_MILLIS = 5 * 60 * 1000;
+
+	private final Socket socket;
+	private final DataInputStream in;
+	private final DataOutputStream out;
+	private IOException failure;
+
+	private AsciidocDaemonClient(Socket socket) throws IOException {
+		this.socket = socket;
+		this.in = new DataInputStream( new BufferedInputStream( socket.getInputStream() ) );
+		this.out = new DataOutputStream( new BufferedOutputStream( socket.getOutputStream() ) );
+	}
+
+	/**
+	 * @param directory the directory the daemon was started with.
+	 * @param includes the include directories and the attributes the daemon converts the blocks with.
+	 * @param fingerprint identifies the conversion settings, the daemon refuses the connection if they differ from its own.
+	 * @throws IOException if the daemon isn't running or refuses the connection, e.g. because it converts with other settings.
+	 */
+	static AsciidocDaemonClient connect(Path directory, String highlightCss, AsciidocIncludes includes, String fingerprint)
+			throws IOException {
+		List<String> portFile;
+		try {
+			portFile = Files.readAllLines( directory.resolve( AsciidocDaemon.PORT_FILE ) );
+		}
+		catch (NoSuchFileException e) {
+			throw new IOException( "No daemon running for " + directory, e );
+		}
+		if ( portFile.size() < 2 ) {
+			throw new IOException( "Invalid daemon port file in " + directory );
+		}
+		int port;
+		try {
+			port = Integer.parseInt( portFile.get( 0 ).trim() );
+		}
+		catch (NumberFormatException e) {
+			throw new IOException( "Invalid daemon port file in " + directory, e );
+		}
+		Socket socket = new Socket();
+		try {
+			socket.connect( new InetSocketAddress( InetAddress.getLoopbackAddress(), port ), CONNECT_TIMEOUT_MILLIS );
+			socket.setSoTimeout( READ_TIMEOUT_MILLIS );
+			AsciidocDaemonClient client = new AsciidocDaemonClient( socket );
+			client.handshake( portFile.get( 1 ).trim(), highlightCss, includes, fingerprint );
+			return client;
+		}
+		catch (IOException e) {
+			socket.close();
+			throw e;
+		}
+	}
+
+	private void handshake(String token, String highlightCss, AsciidocIncludes includes, String fingerprint)
+			throws IOException {
+		out.writeInt( AsciidocDaemon.PROTOCOL_VERSION );
+		AsciidocDaemon.writeString( out, token );
+		AsciidocDaemon.writeString( out, highlightCss );
+		AsciidocDaemon.writeString( out, fingerprint );
+		out.writeInt( includes.baseDirectories().size() );
+		for ( Path includeDirectory : includes.baseDirectories() ) {
+			AsciidocDaemon.writeString( out, includeDirectory.toString() );
+		}
+		out.writeInt( includes.attributes().size() );
+		for ( Map.Entry<String, Object> attribute : includes.attributes().entrySet() ) {
+			AsciidocDaemon.writeString( out, attribute.getKey() );
+			AsciidocDaemon.writeString( out, String.valueOf( attribute.getValue() ) );
+		}
+		out.flush();
+		if ( in.readInt() != AsciidocDaemon.STATUS_OK ) {
+			throw new IOException( "The daemon refused the connection: " + AsciidocDaemon.readString( in, Integer.MAX_VALUE ) );
+		}
+	}
+
+	/**
+	 * @param batchSize how many of the sources the daemon may join into a single document, see {@link AsciidocConverter#convert(List)}.
+	 * @return the HTML of each source, in the same order as the sources, or {@code null} for the ones the daemon couldn't convert.
+	 */
+	List<String> convert(List<AsciidocSource> sources, int batchSize) throws IOException {
+		if ( failure != null ) {
+			throw failure;
+		}
+		try {
+			out.writeInt( sources.size() );
+			out.writeInt( batchSize );
+			for ( AsciidocSource source : sources ) {
+				AsciidocDaemon.writeSource( out, source );
+			}
+			out.flush();
+			List<String> html = new ArrayList<>( sources.size() );
+			for ( int i = 0; i < sources.size(); i++ ) {
+				html.add( AsciidocDaemon.readString( in, Integer.MAX_VALUE ) );
+			}
+			return html;
+		}
+		catch (IOException e) {
+			// there's no telling where the stream is at, the connection is of no use anymore
+			failure = e;
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return the error that broke the connection to the daemon, or {@code null} if there was none.
+	 */
+	IOException failure() {
+		return failure;
+	}
+
+	@Override
+	public void close() {
+		try {
+			socket.close();
+		}
+		catch (IOException e) {
+			// nothing left to do with it anyway
+		}
+	}
+}
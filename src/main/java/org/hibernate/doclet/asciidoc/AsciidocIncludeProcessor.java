@@ -0,0 +1,274 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.asciidoctor.ast.Document;
+import org.asciidoctor.extension.IncludeProcessor;
+import org.asciidoctor.extension.PreprocessorReader;
+
+/**
+ * Resolves the {@code include::} directives of the {@code @asciidoc} blocks through {@link AsciidocIncludes},
+ * i.e. only within the configured base directories, and reads the files through its cache.
+ * The directives of an included file are resolved relative to that file, just like Asciidoctor does.
+ * <p>
+ * The {@code lines} and {@code tag}/{@code tags} attributes select the same lines as Asciidoctor's own include
+ * processing would, wildcards and negated tags included; {@code lines} wins when both are given.
+ * The other attributes, e.g. {@code leveloffset} or {@code indent}, are applied by Asciidoctor as the lines are pushed.
+ */
+final class AsciidocIncludeProcessor extends IncludeProcessor {
+
+	private static final Pattern LEADING_INT = Pattern.compile( "\\s*([+-]?\\d+)" );
+	private static final Pattern TAG_DIRECTIVE = Pattern.compile( "\\b(?:tag|(e)nd)::(\\S+?)\\[\\](?=$|[ \\r])" );
+
+	private volatile AsciidocIncludes includes = AsciidocIncludes.NONE;
+
+	void includes(AsciidocIncludes includes) {
+		this.includes = includes;
+	}
+
+	@Override
+	public boolean handles(String target) {
+		return includes.isEnabled();
+	}
+
+	@Override
+	public void process(Document document, PreprocessorReader reader, String target, Map<String, Object> attributes) {
+		AsciidocIncludes includes = this.includes;
+		// the block itself has no file, the files we pushed do
+		String including = reader.getFile();
+		Path file = includes.resolve( target, including == null || including.isEmpty() ? null : Path.of( reader.getDir() ) );
+		String content = null;
+		if ( file != null ) {
+			try {
+				content = includes.read( file );
+			}
+			catch (IOException e) {
+				// reported the same way as a missing file
+			}
+		}
+		if ( content == null ) {
+			// the same thing Asciidoctor writes for a file it cannot include
+			reader.pushInclude( "Unresolved directive in <stdin> - include::" + target + "[]", target, target, 1, attributes );
+			return;
+		}
+		String selected = select( content, attributes );
+		if ( selected != null ) {
+			reader.pushInclude( selected, file.toString(), target, 1, attributes );
+		}
+	}
+
+	/**
+	 * @return the selected lines, or {@code null} if none is.
+	 */
+	static String select(String content, Map<String, Object> attributes) {
+		if ( attributes.containsKey( "lines" ) ) {
+			List<Integer> lines = lineNumbers( String.valueOf( attributes.get( "lines" ) ) );
+			if ( lines != null ) {
+				return selectLines( content, lines );
+			}
+		}
+		else if ( attributes.containsKey( "tag" ) ) {
+			String tag = String.valueOf( attributes.get( "tag" ) );
+			if ( !tag.isEmpty() && !"!".equals( tag ) ) {
+				Map<String, Boolean> tags = new LinkedHashMap<>();
+				if ( tag.startsWith( "!" ) ) {
+					tags.put( tag.substring( 1 ), false );
+				}
+				else {
+					tags.put( tag, true );
+				}
+				return selectTags( content, tags );
+			}
+		}
+		else if ( attributes.containsKey( "tags" ) ) {
+			Map<String, Boolean> tags = new LinkedHashMap<>();
+			for ( String tag : split( String.valueOf( attributes.get( "tags" ) ) ) ) {
+				if ( tag.isEmpty() || "!".equals( tag ) ) {
+					continue;
+				}
+				if ( tag.startsWith( "!" ) ) {
+					tags.put( tag.substring( 1 ), false );
+				}
+				else {
+					tags.put( tag, true );
+				}
+			}
+			if ( !tags.isEmpty() ) {
+				return selectTags( content, tags );
+			}
+		}
+		return content;
+	}
+
+	/**
+	 * @return the sorted line numbers, {@link Integer#MAX_VALUE} standing for all the lines from the previous one on,
+	 * or {@code null} if there are none.
+	 */
+	private static List<Integer> lineNumbers(String ranges) {
+		TreeSet<Integer> lines = new TreeSet<>();
+		for ( String range : split( ranges ) ) {
+			int dots = range.indexOf( ".." );
+			if ( dots < 0 ) {
+				lines.add( toInt( range ) );
+				continue;
+			}
+			int from = toInt( range.substring( 0, dots ) );
+			String end = range.substring( dots + 2 );
+			if ( end.isEmpty() || toInt( end ) < 0 ) {
+				lines.add( from );
+				lines.add( Integer.MAX_VALUE );
+			}
+			else {
+				for ( int line = from; line <= toInt( end ); line++ ) {
+					lines.add( line );
+				}
+			}
+		}
+		return lines.isEmpty() ? null : new ArrayList<>( lines );
+	}
+
+	private static String selectLines(String content, List<Integer> lines) {
+		StringBuilder selected = new StringBuilder();
+		boolean any = false;
+		int next = 0;
+		String[] contentLines = lines( content );
+		for ( int i = 0; i < contentLines.length && next < lines.size(); i++ ) {
+			int line = lines.get( next );
+			if ( line == Integer.MAX_VALUE ) {
+				// all the remaining ones
+				for ( ; i < contentLines.length; i++ ) {
+					selected.append( contentLines[i] ).append( '\n' );
+				}
+				return selected.toString();
+			}
+			if ( line == i + 1 ) {
+				selected.append( contentLines[i] ).append( '\n' );
+				any = true;
+				next++;
+			}
+		}
+		return any ? selected.toString() : null;
+	}
+
+	/**
+	 * @param tags the tags to select ({@code true}) or leave out ({@code false}), {@code *} standing for any other tag
+	 * and {@code **} for any line.
+	 */
+	private static String selectTags(String content, Map<String, Boolean> tags) {
+		Map<String, Boolean> wanted = new LinkedHashMap<>( tags );
+		boolean select;
+		boolean baseSelect;
+		Boolean wildcard = null;
+		if ( wanted.containsKey( "**" ) ) {
+			select = baseSelect = wanted.remove( "**" );
+			if ( wanted.containsKey( "*" ) ) {
+				wildcard = wanted.remove( "*" );
+			}
+			else if ( !select && !wanted.isEmpty() && !wanted.values().iterator().next() ) {
+				wildcard = true;
+			}
+		}
+		else if ( wanted.containsKey( "*" ) ) {
+			if ( "*".equals( wanted.keySet().iterator().next() ) ) {
+				wildcard = wanted.remove( "*" );
+				select = baseSelect = !wildcard;
+			}
+			else {
+				select = baseSelect = false;
+				wildcard = wanted.remove( "*" );
+			}
+		}
+		else {
+			select = baseSelect = !wanted.containsValue( true );
+		}
+
+		StringBuilder selected = new StringBuilder();
+		boolean any = false;
+		// the tags the current line is in, innermost last, along with whether they select their lines
+		Deque<Map.Entry<String, Boolean>> stack = new ArrayDeque<>();
+		String active = null;
+		for ( String line : lines( content ) ) {
+			Matcher matcher = line.contains( "::" ) && line.contains( "[]" ) ? TAG_DIRECTIVE.matcher( line ) : null;
+			if ( matcher != null && matcher.find() ) {
+				// the lines of the tag directives themselves are never included
+				String tag = matcher.group( 2 );
+				if ( matcher.group( 1 ) != null ) {
+					if ( tag.equals( active ) ) {
+						stack.removeLast();
+						active = stack.isEmpty() ? null : stack.getLast().getKey();
+						select = stack.isEmpty() ? baseSelect : stack.getLast().getValue();
+					}
+					else if ( wanted.containsKey( tag ) ) {
+						// a mismatched end tag, Asciidoctor drops the region it closes and warns about it
+						for ( Iterator<Map.Entry<String, Boolean>> i = stack.descendingIterator(); i.hasNext(); ) {
+							if ( i.next().getKey().equals( tag ) ) {
+								i.remove();
+								break;
+							}
+						}
+					}
+				}
+				else if ( wanted.containsKey( tag ) ) {
+					select = wanted.get( tag );
+					stack.addLast( new AbstractMap.SimpleImmutableEntry<>( active = tag, select ) );
+				}
+				else if ( wildcard != null ) {
+					select = active != null && !select ? false : wildcard;
+					stack.addLast( new AbstractMap.SimpleImmutableEntry<>( active = tag, select ) );
+				}
+			}
+			else if ( select ) {
+				selected.append( line ).append( '\n' );
+				any = true;
+			}
+		}
+		return any ? selected.toString() : null;
+	}
+
+	private static String[] lines(String content) {
+		// a trailing line terminator doesn't start another line
+		String[] lines = content.split( "\n", -1 );
+		return content.endsWith( "\n" ) ? Arrays.copyOf( lines, lines.length - 1 ) : lines;
+	}
+
+	/**
+	 * Splits on commas if there are any, on semicolons otherwise, the way Asciidoctor does.
+	 */
+	private static List<String> split(String value) {
+		List<String> values = new ArrayList<>( Arrays.asList( value.split( value.indexOf( ',' ) >= 0 ? "," : ";" ) ) );
+		// trailing empty values are dropped, the others are kept
+		while ( !values.isEmpty() && values.get( values.size() - 1 ).isEmpty() ) {
+			values.remove( values.size() - 1 );
+		}
+		return values;
+	}
+
+	/**
+	 * @return the leading integer of the value, {@code 0} if there is none, just like Ruby's {@code to_i}.
+	 */
+	private static int toInt(String value) {
+		Matcher matcher = LEADING_INT.matcher( value );
+		if ( !matcher.lookingAt() ) {
+			return 0;
+		}
+		try {
+			return Integer.parseInt( matcher.group( 1 ) );
+		}
+		catch (NumberFormatException e) {
+			return matcher.group( 1 ).startsWith( "-" ) ? Integer.MIN_VALUE : Integer.MAX_VALUE - 1;
+		}
+	}
+}
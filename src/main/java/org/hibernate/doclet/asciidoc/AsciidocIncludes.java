@@ -0,0 +1,283 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * What the {@code @asciidoc} blocks may use beyond their own markup: the files {@code include::} directives may point to,
+ * and the attributes of the shared attributes file.
+ * <p>
+ * An include target is resolved against each of the base directories in turn, and only ever to a file within one of them,
+ * symbolic links included, so that a comment cannot pull arbitrary files into the docs. Without base directories,
+ * {@code include::} directives are left to Asciidoctor, which turns them into links in its default secure mode.
+ * <p>
+ * The converted blocks kept between the runs depend on the files they include: rather than on the state of everything
+ * within the base directories, each block is {@link #fingerprint(String) fingerprinted} with the files
+ * its directives point to.
+ */
+final class AsciidocIncludes {
+
+	static final AsciidocIncludes NONE = new AsciidocIncludes( List.of(), Map.of(), "" );
+
+	// :name: value, :name!: or :!name:, with an optional trailing backslash for values continued on the next line
+	private static final Pattern ATTRIBUTE_ENTRY = Pattern.compile( "^:(!?)(\\w[\\w-]*)(!?):(?:[ \\t]+(.*))?$" );
+	private static final Pattern URI = Pattern.compile( "^\\p{Alpha}[\\p{Alnum}.+-]+:/" );
+	private static final String INCLUDE_PREFIX = "include::";
+	// the same directives Asciidoctor processes, i.e. not escaped with a backslash
+	private static final Pattern INCLUDE_DIRECTIVE = Pattern.compile( "(?m)^include::([^\\s\\[](?:[^\\[\\n]*[^\\s\\[])?)\\[" );
+	private static final Pattern ATTRIBUTE_REFERENCE = Pattern.compile( "\\{(\\w[\\w-]*)}" );
+
+	private final List<Path> baseDirectories;
+	private final Map<String, Object> attributes;
+	private final String fingerprint;
+	private final IncludeCache cache = new IncludeCache();
+	// the state of all the includable files, for the blocks whose includes cannot be told upfront
+	private volatile String directoriesFingerprint;
+
+	private AsciidocIncludes(List<Path> baseDirectories, Map<String, Object> attributes, String fingerprint) {
+		this.baseDirectories = baseDirectories;
+		this.attributes = attributes;
+		this.fingerprint = fingerprint;
+	}
+
+	/**
+	 * @param attributesFile an Asciidoc file of attribute entries, or {@code null}.
+	 */
+	static AsciidocIncludes create(List<Path> baseDirectories, Path attributesFile) throws IOException {
+		if ( baseDirectories.isEmpty() && attributesFile == null ) {
+			return NONE;
+		}
+		return of( baseDirectories, attributesFile == null ? Map.of() : readAttributes( attributesFile ) );
+	}
+
+	/**
+	 * @param attributes the attributes read from the attributes file, see {@link #attributes()}.
+	 */
+	static AsciidocIncludes of(List<Path> baseDirectories, Map<String, ?> attributes) throws IOException {
+		if ( baseDirectories.isEmpty() && attributes.isEmpty() ) {
+			return NONE;
+		}
+		List<Path> directories = new ArrayList<>( baseDirectories.size() );
+		for ( Path directory : baseDirectories ) {
+			directories.add( directory.toRealPath() );
+		}
+
+		// the included files themselves are covered by the fingerprint of each block
+		StringBuilder fingerprint = new StringBuilder( ";attributes=" ).append( new TreeMap<>( attributes ) );
+		for ( Path directory : directories ) {
+			fingerprint.append( ";includes=" ).append( directory );
+		}
+		return new AsciidocIncludes( directories, Collections.unmodifiableMap( new LinkedHashMap<>( attributes ) ),
+				CacheFiles.sha256( fingerprint.toString() ) );
+	}
+
+	/**
+	 * @return the directories the {@code include::} directives may point into.
+	 */
+	List<Path> baseDirectories() {
+		return baseDirectories;
+	}
+
+	boolean isEnabled() {
+		return !baseDirectories.isEmpty();
+	}
+
+	/**
+	 * @return the attributes every block is converted with.
+	 */
+	Map<String, Object> attributes() {
+		return attributes;
+	}
+
+	/**
+	 * @return a string identifying the attributes and the base directories, empty if there are none.
+	 */
+	String fingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * @return a string identifying the state of the files the {@code include::} directives of the block point to,
+	 * directly or through the included files, empty if there are none. If a target cannot be resolved,
+	 * e.g. it refers to an attribute defined within the block or to a file that doesn't exist yet,
+	 * the state of all the files within the base directories.
+	 */
+	String fingerprint(String text) {
+		if ( !isEnabled() || !text.contains( INCLUDE_PREFIX ) ) {
+			return "";
+		}
+		StringBuilder sb = new StringBuilder();
+		if ( !appendIncludes( sb, text, null, new HashSet<>() ) ) {
+			return directoriesFingerprint();
+		}
+		return sb.length() == 0 ? "" : CacheFiles.sha256( sb.toString() );
+	}
+
+	/**
+	 * @return {@code false} if one of the targets cannot be resolved.
+	 */
+	private boolean appendIncludes(StringBuilder sb, String text, Path directory, Set<Path> visited) {
+		Matcher matcher = INCLUDE_DIRECTIVE.matcher( text );
+		while ( matcher.find() ) {
+			Path file = resolve( substituteAttributes( matcher.group( 1 ) ), directory );
+			if ( file == null ) {
+				return false;
+			}
+			if ( !visited.add( file ) ) {
+				continue;
+			}
+			try {
+				BasicFileAttributes attributes = Files.readAttributes( file, BasicFileAttributes.class );
+				sb.append( file ).append( ':' ).append( attributes.size() )
+						.append( ':' ).append( attributes.lastModifiedTime().toMillis() ).append( ',' );
+				String content = read( file );
+				if ( content.contains( INCLUDE_PREFIX ) && !appendIncludes( sb, content, file.getParent(), visited ) ) {
+					return false;
+				}
+			}
+			catch (IOException e) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String substituteAttributes(String target) {
+		if ( target.indexOf( '{' ) < 0 ) {
+			return target;
+		}
+		Matcher matcher = ATTRIBUTE_REFERENCE.matcher( target );
+		StringBuilder sb = new StringBuilder();
+		while ( matcher.find() ) {
+			Object value = attributes.get( matcher.group( 1 ) );
+			matcher.appendReplacement( sb, Matcher.quoteReplacement( value == null ? matcher.group() : value.toString() ) );
+		}
+		return matcher.appendTail( sb ).toString();
+	}
+
+	/*
+	 * Computed the first time a block needs it, as it means going through all the files of the base directories.
+	 */
+	private String directoriesFingerprint() {
+		String fingerprint = directoriesFingerprint;
+		if ( fingerprint == null ) {
+			StringBuilder sb = new StringBuilder();
+			try {
+				for ( Path directory : baseDirectories ) {
+					sb.append( ";includes=" ).append( directory );
+					try ( Stream<Path> files = Files.walk( directory ) ) {
+						for ( Path file : files.filter( Files::isRegularFile ).sorted().collect( Collectors.toList() ) ) {
+							sb.append( ',' ).append( directory.relativize( file ) )
+									.append( ':' ).append( Files.size( file ) )
+									.append( ':' ).append( Files.getLastModifiedTime( file ).toMillis() );
+						}
+					}
+				}
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException( "Unable to list the Asciidoc include directories", e );
+			}
+			fingerprint = CacheFiles.sha256( sb.toString() );
+			directoriesFingerprint = fingerprint;
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * @return the file the target points to, or {@code null} if it isn't an existing file within one of the base directories.
+	 */
+	Path resolve(String target) {
+		return resolve( target, null );
+	}
+
+	/**
+	 * @param directory the directory of the included file the directive comes from, {@code null} for the directives
+	 * of the block itself.
+	 * @return the file the target points to, relative to the given directory or else to each of the base directories,
+	 * or {@code null} if it isn't an existing file within one of the base directories.
+	 */
+	Path resolve(String target, Path directory) {
+		if ( URI.matcher( target ).find() ) {
+			return null;
+		}
+		if ( directory != null ) {
+			// like Asciidoctor, the directives of an included file are relative to that file
+			return resolve( directory, target );
+		}
+		for ( Path baseDirectory : baseDirectories ) {
+			Path file = resolve( baseDirectory, target );
+			if ( file != null ) {
+				return file;
+			}
+		}
+		return null;
+	}
+
+	private Path resolve(Path directory, String target) {
+		try {
+			Path file = directory.resolve( target ).normalize();
+			if ( Files.isRegularFile( file ) ) {
+				// resolving the links as well, so that a link within the directory can't point outside of it
+				Path real = file.toRealPath();
+				for ( Path baseDirectory : baseDirectories ) {
+					if ( real.startsWith( baseDirectory ) ) {
+						return real;
+					}
+				}
+			}
+		}
+		catch (InvalidPathException | IOException e) {
+			// not a file we can include, maybe the next directory has it
+		}
+		return null;
+	}
+
+	String read(Path file) throws IOException {
+		return cache.read( file );
+	}
+
+	static Map<String, Object> readAttributes(Path file) throws IOException {
+		Map<String, Object> attributes = new LinkedHashMap<>();
+		List<String> lines = Files.readAllLines( file );
+		for ( int i = 0; i < lines.size(); i++ ) {
+			Matcher matcher = ATTRIBUTE_ENTRY.matcher( lines.get( i ) );
+			if ( !matcher.matches() ) {
+				// comments, blank lines, or anything else that isn't an attribute entry
+				continue;
+			}
+			String name = matcher.group( 2 );
+			if ( !matcher.group( 1 ).isEmpty() || !matcher.group( 3 ).isEmpty() ) {
+				// a trailing ! unsets the attribute, just like in the API
+				attributes.put( name + "!", "" );
+				continue;
+			}
+			StringBuilder value = new StringBuilder( matcher.group( 4 ) == null ? "" : matcher.group( 4 ).trim() );
+			while ( endsWithContinuation( value ) && i + 1 < lines.size() ) {
+				value.setLength( value.length() - 1 );
+				value.append( lines.get( ++i ).trim() );
+			}
+			attributes.put( name, value.toString() );
+		}
+		return attributes;
+	}
+
+	private static boolean endsWithContinuation(StringBuilder value) {
+		return value.length() > 1 && value.charAt( value.length() - 1 ) == '\\' && value.charAt( value.length() - 2 ) == ' ';
+	}
+}
@@ -0,0 +1,298 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+
+import com.sun.source.doctree.DocCommentTree;
+import com.sun.source.doctree.DocTree;
+import com.sun.source.doctree.UnknownBlockTagTree;
+import com.sun.source.util.DocTrees;
+import jdk.javadoc.doclet.DocletEnvironment;
+
+/**
+ * Converts all the {@code @asciidoc} blocks of the included elements ahead of time,
+ * so that the taglet only has to look the HTML up, instead of converting the markup on the doclet writer thread.
+ * <p>
+ * Collecting the Asciidoc source requires access to the compiler trees, which are not thread-safe,
+ * hence it happens on the calling thread. Only the Asciidoctor conversion itself is spread across the workers,
+ * each worker having its own Asciidoctor runtime. The first worker uses the {@link AsciidoctorRuntime#shared() shared}
+ * one, as the taglet won't need it until the pre-rendering is over.
+ * <p>
+ * With an {@link AsciidocDaemon}, the blocks are sent to the daemon instead, and only the ones it didn't convert
+ * are left to the workers, if any.
+ */
+final class AsciidocPrerenderer {
+
+	static final String TAG_NAME = "asciidoc";
+	// blocks sent to the daemon at once, so that neither side has to hold on to all of them
+	private static final int DAEMON_REQUEST_SIZE = 256;
+
+	private AsciidocPrerenderer() {
+	}
+
+	/**
+	 * @param elements the documented elements to convert the blocks of, see {@link #documentedElements(DocletEnvironment)}.
+	 * @param daemon the daemon converting the blocks, or {@code null} to convert them in this process.
+	 * @param workers the number of workers converting the blocks in this process, may be {@code 0} with a daemon.
+	 * @param fragments where the converted blocks go, as soon as each one is converted.
+	 */
+	static void prerender(DocletEnvironment environment, Set<Element> elements,
+			AsciidocSourceWriter writer, FragmentCache cache, AsciidoctorRuntime runtime, AsciidocDaemonClient daemon,
+			int workers, int batchSize, boolean fastPath, DocletMetrics metrics, PrerenderedFragments fragments) {
+		List<Block> blocks = collect( environment, elements, writer );
+
+		// whatever is simple enough for the fast path or was converted by one of the previous builds doesn't need a worker:
+		List<Block> misses = new ArrayList<>();
+		for ( Block block : blocks ) {
+			String simple = fastPath ? FastPathRenderer.render( block.source ) : null;
+			if ( simple != null ) {
+				metrics.fastPathRender();
+				fragments.put( block.element, block.tag, simple );
+				continue;
+			}
+			block.key = cache.key( block.source );
+			String html = cache.get( block.key );
+			if ( html == null ) {
+				misses.add( block );
+			}
+			else {
+				metrics.cacheHit();
+				fragments.put( block.element, block.tag, html );
+			}
+		}
+		// a failed conversion is simply left out, the taglet will convert such a block on its own
+		// and report the problem then.
+		BiConsumer<Block, String> converted = (block, html) -> {
+			cache.put( block.key, html );
+			fragments.put( block.element, block.tag, html );
+		};
+		if ( daemon != null && !misses.isEmpty() ) {
+			misses = convert( misses, daemon, Math.max( 1, batchSize ), metrics, converted );
+		}
+		if ( misses.isEmpty() || workers < 1 ) {
+			return;
+		}
+		convert( misses, runtime, Math.min( workers, misses.size() ), Math.max( 1, batchSize ), metrics, converted );
+	}
+
+	/**
+	 * @return the blocks the daemon didn't convert.
+	 */
+	private static List<Block> convert(List<Block> blocks, AsciidocDaemonClient daemon, int batchSize,
+			DocletMetrics metrics, BiConsumer<Block, String> converted) {
+		List<Block> failed = new ArrayList<>();
+		for ( int start = 0; start < blocks.size(); start += DAEMON_REQUEST_SIZE ) {
+			List<Block> request = blocks.subList( start, Math.min( start + DAEMON_REQUEST_SIZE, blocks.size() ) );
+			List<AsciidocSource> sources = new ArrayList<>( request.size() );
+			long length = 0;
+			for ( Block block : request ) {
+				sources.add( block.source );
+				length += block.source.text().length();
+			}
+			List<String> html;
+			long started = metrics.start();
+			try {
+				html = daemon.convert( sources, batchSize );
+			}
+			catch (IOException e) {
+				// whatever is left goes back to this process
+				failed.addAll( blocks.subList( start, blocks.size() ) );
+				return failed;
+			}
+			long nanos = metrics.start() - started;
+			for ( int i = 0; i < request.size(); i++ ) {
+				Block block = request.get( i );
+				if ( html.get( i ) == null ) {
+					failed.add( block );
+					continue;
+				}
+				metrics.timedConversion( block.element, block.source, html.get( i ),
+						length == 0 ? nanos / request.size() : nanos * block.source.text().length() / length );
+				converted.accept( block, html.get( i ) );
+			}
+		}
+		return failed;
+	}
+
+	private static List<Block> collect(DocletEnvironment environment, Set<Element> elements,
+			AsciidocSourceWriter writer) {
+		DocTrees docTrees = environment.getDocTrees();
+		List<Block> blocks = new ArrayList<>();
+		for ( Element element : elements ) {
+			DocTree tag = asciidocTag( docTrees.getDocCommentTree( element ) );
+			if ( tag != null ) {
+				blocks.add( new Block( element, tag, writer.write( tag, element ) ) );
+			}
+		}
+		return blocks;
+	}
+
+	/**
+	 * @return included modules, packages and types along with the included members of those types.
+	 */
+	static Set<Element> documentedElements(DocletEnvironment environment) {
+		Set<Element> elements = new LinkedHashSet<>();
+		for ( Element element : environment.getIncludedElements() ) {
+			elements.add( element );
+			if ( element instanceof TypeElement ) {
+				for ( Element member : element.getEnclosedElements() ) {
+					if ( !( member instanceof TypeElement ) && environment.isIncluded( member ) ) {
+						elements.add( member );
+					}
+				}
+			}
+		}
+		return elements;
+	}
+
+	/**
+	 * @return whether any of the elements has an {@code @asciidoc} tag.
+	 */
+	static boolean hasAsciidocTags(DocletEnvironment environment, Set<Element> elements) {
+		// javac keeps the parsed comments, so the taglet and the pre-rendering won't parse them again
+		DocTrees docTrees = environment.getDocTrees();
+		for ( Element element : elements ) {
+			if ( asciidocTag( docTrees.getDocCommentTree( element ) ) != null ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the first {@code @asciidoc} tag of the comment, as that is the one the taglet converts.
+	 */
+	static DocTree asciidocTag(DocCommentTree comment) {
+		if ( comment == null ) {
+			return null;
+		}
+		for ( DocTree tag : comment.getBlockTags() ) {
+			if ( tag instanceof UnknownBlockTagTree && TAG_NAME.equals( ( (UnknownBlockTagTree) tag ).getTagName() ) ) {
+				return tag;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param converted gets each of the converted blocks, on the worker thread that converted it,
+	 * rather than holding on to all of them until the end.
+	 */
+	private static void convert(List<Block> blocks, AsciidoctorRuntime runtime, int workers, int batchSize,
+			DocletMetrics metrics, BiConsumer<Block, String> converted) {
+		AtomicInteger next = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool( workers, runnable -> {
+			Thread thread = new Thread( runnable, "asciidoc-prerender" );
+			thread.setDaemon( true );
+			return thread;
+		} );
+		try {
+			List<Future<?>> futures = new ArrayList<>( workers );
+			for ( int i = 0; i < workers; i++ ) {
+				// the first worker reuses the shared runtime, which is most likely booted already,
+				// the others have to start their own:
+				boolean shared = i == 0;
+				futures.add( executor.submit( () -> {
+					AsciidocConverter converter = shared ? runtime.acquire() : runtime.newConverter();
+					try {
+						int start;
+						while ( ( start = next.getAndAdd( batchSize ) ) < blocks.size() ) {
+							convert( converter, blocks, start, Math.min( start + batchSize, blocks.size() ), metrics, converted );
+						}
+					}
+					finally {
+						if ( shared ) {
+							runtime.release();
+						}
+						else {
+							converter.close();
+						}
+					}
+				} ) );
+			}
+			for ( Future<?> future : futures ) {
+				future.get();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException( "Interrupted while pre-rendering the Asciidoc blocks.", e );
+		}
+		catch (ExecutionException e) {
+			throw new RuntimeException( "Unable to pre-render the Asciidoc blocks.", e.getCause() );
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static void convert(AsciidocConverter converter, List<Block> blocks, int start, int end,
+			DocletMetrics metrics, BiConsumer<Block, String> converted) {
+		if ( end - start > 1 ) {
+			List<AsciidocSource> sources = new ArrayList<>( end - start );
+			long length = 0;
+			for ( int index = start; index < end; index++ ) {
+				sources.add( blocks.get( index ).source );
+				length += blocks.get( index ).source.text().length();
+			}
+			List<String> html = null;
+			long nanos = 0;
+			try {
+				long started = metrics.start();
+				html = converter.convert( sources );
+				nanos = metrics.start() - started;
+			}
+			catch (RuntimeException e) {
+				// one of the blocks cannot be converted, fall back to converting them one by one,
+				// so that the others are still pre-rendered
+			}
+			if ( html != null ) {
+				for ( int index = start; index < end; index++ ) {
+					// there's no telling how long each of the blocks took, so the time of the batch is split by size:
+					Block block = blocks.get( index );
+					metrics.timedConversion( block.element, block.source, html.get( index - start ),
+							length == 0 ? nanos / ( end - start ) : nanos * block.source.text().length() / length );
+					converted.accept( block, html.get( index - start ) );
+				}
+				return;
+			}
+		}
+		for ( int index = start; index < end; index++ ) {
+			Block block = blocks.get( index );
+			String html;
+			try {
+				long started = metrics.start();
+				html = converter.convert( block.source );
+				metrics.conversion( block.element, block.source, html, started );
+			}
+			catch (RuntimeException e) {
+				continue;
+			}
+			converted.accept( block, html );
+		}
+	}
+
+	private static final class Block {
+		private final Element element;
+		private final DocTree tag;
+		private final AsciidocSource source;
+		private FragmentCache.Key key;
+
+		private Block(Element element, DocTree tag, AsciidocSource source) {
+			this.element = element;
+			this.tag = tag;
+			this.source = source;
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.util.List;
+
+/**
+ * Asciidoc markup of a {@code @asciidoc} block along with the links resolved while writing it.
+ * <p>
+ * The text refers to the links through {@code javadoc:<index>[]} placeholders,
+ * which the {@link JavadocLinkMacroProcessor} replaces with the link at that index.
+ */
+final class AsciidocSource {
+
+	private final String text;
+	private final List<Link> links;
+
+	AsciidocSource(String text, List<Link> links) {
+		this.text = text;
+		this.links = links;
+	}
+
+	/**
+	 * @return a source without any links in the side table.
+	 */
+	static AsciidocSource of(String text) {
+		return new AsciidocSource( text, List.of() );
+	}
+
+	String text() {
+		return text;
+	}
+
+	List<Link> links() {
+		return links;
+	}
+
+	static final class Link {
+		private final String href;
+		private final String label;
+
+		Link(String href, String label) {
+			this.href = href;
+			this.label = label;
+		}
+
+		String href() {
+			return href;
+		}
+
+		String label() {
+			return label;
+		}
+
+		/**
+		 * @return the href, escaped so that it can go as is into an attribute of the HTML.
+		 */
+		String escapedHref() {
+			return escape( href );
+		}
+
+		/**
+		 * @return the label, escaped so that it can go as is into the HTML, e.g. the type arguments of a signature.
+		 */
+		String escapedLabel() {
+			return escape( label );
+		}
+
+		/*
+		 * The same characters Asciidoctor escapes in the text of the attributes form of the placeholders,
+		 * plus the quote, so that an href can't close the attribute it goes into.
+		 */
+		private static String escape(String text) {
+			StringBuilder escaped = null;
+			for ( int i = 0; i < text.length(); i++ ) {
+				String replacement;
+				switch ( text.charAt( i ) ) {
+					case '&':
+						replacement = "&amp;";
+						break;
+					case '<':
+						replacement = "&lt;";
+						break;
+					case '>':
+						replacement = "&gt;";
+						break;
+					case '"':
+						replacement = "&quot;";
+						break;
+					default:
+						if ( escaped != null ) {
+							escaped.append( text.charAt( i ) );
+						}
+						continue;
+				}
+				if ( escaped == null ) {
+					escaped = new StringBuilder( text.length() + 16 ).append( text, 0, i );
+				}
+				escaped.append( replacement );
+			}
+			return escaped == null ? text : escaped.toString();
+		}
+	}
+}
@@ -0,0 +1,390 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+
+import com.sun.source.doctree.DocCommentTree;
+import com.sun.source.doctree.DocTree;
+import com.sun.source.doctree.LinkTree;
+import com.sun.source.doctree.LiteralTree;
+import com.sun.source.doctree.ReferenceTree;
+import com.sun.source.doctree.TextTree;
+import com.sun.source.doctree.UnknownBlockTagTree;
+import com.sun.source.util.DocTreePath;
+import com.sun.source.util.DocTrees;
+import com.sun.source.util.SimpleDocTreeVisitor;
+import com.sun.source.util.TreePath;
+import jdk.javadoc.doclet.Reporter;
+
+/**
+ * Writes the Asciidoc markup of a {@code @asciidoc} block tag, replacing the inline javadoc tags
+ * with their Asciidoc counterparts.
+ * <p>
+ * All the nodes are written in a single pass into the same buffer, which is reused from one tag to the next.
+ * The leading space that comes from the comment formatting is dropped while writing.
+ * The {@code javadoc:<symbol>[]} macros written directly into the text are resolved through the {@link SymbolIndex}
+ * and end up in the same form as the links of the {@code {@link}} tags, except within the delimited listing, literal,
+ * passthrough and comment blocks, whose content Asciidoctor doesn't look for macros in either.
+ * <p>
+ * The references of the {@code {@link}} tags are resolved once per type: the same reference written in the comments
+ * of several members of a type resolves to the same element, so the resolved elements are kept by enclosing type
+ * and reference signature.
+ * A writer is not thread-safe.
+ */
+final class AsciidocSourceWriter extends SimpleDocTreeVisitor<Void, Void> {
+
+	private static final String MACRO_PREFIX = "javadoc:";
+	// the symbol of a {@link}, i.e. something that starts like an identifier or with a #member, as the numeric targets
+	// are the placeholders of the side table; the text in brackets is the label, unless it looks like attributes:
+	private static final Pattern SYMBOL_MACRO = Pattern.compile(
+			"javadoc:((?:[\\p{javaJavaIdentifierStart}][\\p{javaJavaIdentifierPart}.]*)?(?:#[\\p{javaJavaIdentifierPart}]+(?:\\([^)\\]\\n]*\\))?)?)\\[([^\\]\\n]*)]" );
+
+	private final DocTrees docTrees;
+	private final LinksHelper linksHelper;
+	private final SymbolIndex symbolIndex;
+	private final Reporter reporter;
+	private final Set<List<Object>> reported = new HashSet<>();
+	// enclosing type, or the package/module itself, -> reference signature -> resolved element
+	private final Map<Element, Map<String, Element>> resolved = new HashMap<>();
+	private final boolean linkTable;
+	private final SourceBuffer buffer = new SourceBuffer();
+	private final StringBuilder label = new StringBuilder();
+	private List<AsciidocSource.Link> links;
+	private Element element;
+	private DocTree tag;
+	// paths of the comment and the tag being written, computed for the first link that isn't resolved already
+	private DocTreePath commentPath;
+	private DocTreePath tagPath;
+
+	/**
+	 * @param linkTable whether the links should be collected into the side table of the source,
+	 * or written as {@code javadoc:stub[ href='...', label='...']} macros into the text itself.
+	 */
+	AsciidocSourceWriter(DocTrees docTrees, LinksHelper linksHelper, boolean linkTable) {
+		this( docTrees, linksHelper, SymbolIndex.EMPTY, null, linkTable );
+	}
+
+	/**
+	 * @param reporter where the symbols that cannot be resolved are reported, once each, or {@code null}.
+	 */
+	AsciidocSourceWriter(DocTrees docTrees, LinksHelper linksHelper, SymbolIndex symbolIndex, Reporter reporter,
+			boolean linkTable) {
+		this.docTrees = docTrees;
+		this.linksHelper = linksHelper;
+		this.symbolIndex = symbolIndex;
+		this.reporter = reporter;
+		this.linkTable = linkTable;
+	}
+
+	/**
+	 * @return the Asciidoc source of the tag, ready to be passed to the converter.
+	 */
+	AsciidocSource write(DocTree tag, Element element) {
+		this.element = element;
+		this.tag = tag;
+		buffer.reset();
+		try {
+			visit( tag, null );
+			return new AsciidocSource( buffer.toString(), links == null ? List.of() : links );
+		}
+		finally {
+			this.element = null;
+			this.tag = null;
+			this.commentPath = null;
+			this.tagPath = null;
+			this.links = null;
+		}
+	}
+
+	@Override
+	public Void visitUnknownBlockTag(UnknownBlockTagTree node, Void p) {
+		for ( DocTree dt : node.getContent() ) {
+			dt.accept( this, null );
+		}
+		return null;
+	}
+
+	@Override
+	public Void visitText(TextTree node, Void p) {
+		String body = node.getBody();
+		if ( !body.contains( MACRO_PREFIX ) ) {
+			buffer.append( body );
+			return null;
+		}
+		Matcher matcher = SYMBOL_MACRO.matcher( body );
+		int last = 0;
+		while ( matcher.find() ) {
+			String symbol = matcher.group( 1 );
+			if ( symbol.isEmpty() || "stub".equals( symbol ) ) {
+				continue;
+			}
+			// the lines written before the macro tell whether it is within a verbatim block
+			buffer.append( body, last, matcher.start() );
+			last = matcher.start();
+			if ( buffer.isVerbatim() ) {
+				continue;
+			}
+			Element referenceElement = symbolIndex.resolve( symbol, element );
+			if ( referenceElement == null ) {
+				reportUnresolved( node, symbol );
+				continue;
+			}
+			label.setLength( 0 );
+			String text = matcher.group( 2 );
+			if ( text.isBlank() || text.indexOf( '=' ) >= 0 ) {
+				appendDefaultLabel( referenceElement );
+			}
+			else {
+				label.append( text );
+			}
+			appendLink( linksHelper.javadocLink( referenceElement, element ), false );
+			last = matcher.end();
+		}
+		buffer.append( body, last, body.length() );
+		return null;
+	}
+
+	@Override
+	public Void visitLink(LinkTree node, Void unused) {
+		Element referenceElement = resolve( node );
+		String href = linksHelper.javadocLink( referenceElement, element );
+		label.setLength( 0 );
+		appendLinkLabel( node.getLabel(), referenceElement );
+		appendLink( href, true );
+		return null;
+	}
+
+	private Element resolve(LinkTree link) {
+		ReferenceTree reference = link.getReference();
+		Map<String, Element> scope = resolved.computeIfAbsent( scope( element ), s -> new HashMap<>() );
+		Element referenceElement = scope.get( reference.getSignature() );
+		if ( referenceElement == null ) {
+			referenceElement = docTrees.getElement( referencePath( link ) );
+			if ( referenceElement != null ) {
+				scope.put( reference.getSignature(), referenceElement );
+			}
+		}
+		return referenceElement;
+	}
+
+	/*
+	 * The links are direct children of the tag, so the path to the reference can be built instead of searched for,
+	 * unless the tag comes from some other comment than the element's own, e.g. an inherited one.
+	 */
+	private DocTreePath referencePath(LinkTree link) {
+		if ( commentPath == null ) {
+			DocCommentTree comment = docTrees.getDocCommentTree( element );
+			commentPath = new DocTreePath( docTrees.getPath( element ), comment );
+			tagPath = comment.getBlockTags().contains( tag ) ? new DocTreePath( commentPath, tag ) : null;
+		}
+		if ( tagPath == null ) {
+			return DocTreePath.getPath( commentPath, link.getReference() );
+		}
+		return new DocTreePath( new DocTreePath( tagPath, link ), link.getReference() );
+	}
+
+	private static Element scope(Element element) {
+		for ( Element e = element; e != null; e = e.getEnclosingElement() ) {
+			if ( e instanceof TypeElement ) {
+				return e;
+			}
+		}
+		return element;
+	}
+
+	/**
+	 * @param space whether to follow the macro with a space, as the {@code {@link}} tags always did.
+	 */
+	private void appendLink(String href, boolean space) {
+		if ( linkTable ) {
+			// the macro processor gets the link by its index, so neither Asciidoctor has to parse the attributes,
+			// nor do we have to worry about the Asciidoc syntax of the label, the processor escapes it for the HTML:
+			if ( links == null ) {
+				links = new ArrayList<>();
+			}
+			buffer.append( MACRO_PREFIX ).append( Integer.toString( links.size() ) ).append( "[]" );
+			links.add( new AsciidocSource.Link( href, label.toString() ) );
+		}
+		else {
+			buffer.append( "javadoc:stub[ href='" ).append( href ).append( "', label='" ).append( label ).append( "']" );
+		}
+		if ( space ) {
+			buffer.append( ' ' );
+		}
+	}
+
+	private void reportUnresolved(TextTree node, String symbol) {
+		if ( reporter == null || !reported.add( List.of( element, symbol ) ) ) {
+			return;
+		}
+		String message = symbolIndex.isAmbiguous( symbol )
+				? "Asciidoc: javadoc:" + symbol + "[] is ambiguous, use the qualified name of the type"
+				: "Asciidoc: javadoc:" + symbol + "[] cannot be resolved";
+		TreePath path = docTrees.getPath( element );
+		if ( path == null ) {
+			reporter.print( Diagnostic.Kind.WARNING, element, message );
+		}
+		else {
+			reporter.print( Diagnostic.Kind.WARNING,
+					DocTreePath.getPath( path, docTrees.getDocCommentTree( element ), node ), message );
+		}
+	}
+
+	@Override
+	public Void visitLiteral(LiteralTree node, Void unused) {
+		if ( DocTree.Kind.CODE.equals( node.getKind() ) ) {
+			buffer.append( '`' ).append( node.getBody().getBody() ).append( '`' );
+		}
+		else {
+			buffer.append( node.getBody().getBody() );
+		}
+		return null;
+	}
+
+	@Override
+	protected Void defaultAction(DocTree node, Void p) {
+		return null;
+	}
+
+	/*
+	 * If we have a link with a label we want to get that label to be placed in between a tag.
+	 * Otherwise, we just use whatever the reference element points to as a label.
+	 */
+	private void appendLinkLabel(List<? extends DocTree> labels, Element referenceElement) {
+		boolean blank = true;
+		for ( DocTree text : labels ) {
+			if ( text instanceof TextTree && !( (TextTree) text ).getBody().isBlank() ) {
+				blank = false;
+				break;
+			}
+		}
+
+		if ( blank ) {
+			appendDefaultLabel( referenceElement );
+		}
+		else {
+			for ( DocTree text : labels ) {
+				if ( text instanceof TextTree ) {
+					label.append( ( (TextTree) text ).getBody() );
+				}
+			}
+		}
+	}
+
+	private void appendDefaultLabel(Element referenceElement) {
+		if ( referenceElement instanceof TypeElement ) {
+			label.append( referenceElement.toString() );
+		}
+		else {
+			label.append( referenceElement.getEnclosingElement().getSimpleName() )
+					.append( '#' )
+					.append( referenceElement.toString() );
+		}
+	}
+
+	/**
+	 * Drops a single space at the start of each line, i.e. what {@code text.replaceAll( "(?m)^[ ]", "" )} would do,
+	 * as the text is being appended.
+	 * Also keeps track of the delimited blocks whose content is verbatim, as the lines are completed.
+	 */
+	private static final class SourceBuffer implements Appendable {
+		private static final String VERBATIM_DELIMITERS = "-.+/";
+		private static final String FENCE = "```";
+
+		private final StringBuilder sb = new StringBuilder( 1024 );
+		private boolean lineStart;
+		private int lineStartIndex;
+		// the delimiter line of the verbatim block the text is in, the same line closes the block
+		private String verbatim;
+
+		void reset() {
+			sb.setLength( 0 );
+			lineStart = true;
+			lineStartIndex = 0;
+			verbatim = null;
+		}
+
+		/**
+		 * @return whether the completed lines left the text within a listing, literal, passthrough or comment block.
+		 */
+		boolean isVerbatim() {
+			return verbatim != null;
+		}
+
+		@Override
+		public SourceBuffer append(CharSequence text) {
+			return append( text, 0, text.length() );
+		}
+
+		@Override
+		public SourceBuffer append(CharSequence text, int start, int end) {
+			for ( int i = start; i < end; i++ ) {
+				append( text.charAt( i ) );
+			}
+			return this;
+		}
+
+		@Override
+		public SourceBuffer append(char c) {
+			if ( !( lineStart && c == ' ' ) ) {
+				sb.append( c );
+			}
+			lineStart = isLineTerminator( c );
+			if ( lineStart ) {
+				endLine( sb.length() - 1 );
+			}
+			return this;
+		}
+
+		private void endLine(int end) {
+			while ( end > lineStartIndex && Character.isWhitespace( sb.charAt( end - 1 ) ) ) {
+				end--;
+			}
+			String delimiter = delimiter( lineStartIndex, end );
+			if ( verbatim == null ) {
+				verbatim = delimiter;
+			}
+			else if ( verbatim.equals( delimiter ) ) {
+				verbatim = null;
+			}
+			lineStartIndex = sb.length();
+		}
+
+		/*
+		 * Four or more of the same character, e.g. ---- for a listing block, or a Markdown-style fence.
+		 */
+		private String delimiter(int start, int end) {
+			if ( end - start >= FENCE.length() && sb.indexOf( FENCE, start ) == start ) {
+				return FENCE;
+			}
+			if ( end - start < 4 || VERBATIM_DELIMITERS.indexOf( sb.charAt( start ) ) < 0 ) {
+				return null;
+			}
+			for ( int i = start + 1; i < end; i++ ) {
+				if ( sb.charAt( i ) != sb.charAt( start ) ) {
+					return null;
+				}
+			}
+			return sb.substring( start, end );
+		}
+
+		@Override
+		public String toString() {
+			return sb.toString();
+		}
+
+		// the same characters that a multiline regular expression considers to be line terminators:
+		private static boolean isLineTerminator(char c) {
+			return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+		}
+	}
+}
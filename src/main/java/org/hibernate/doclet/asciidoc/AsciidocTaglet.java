@@ -1,30 +1,15 @@
 package org.hibernate.doclet.asciidoc;
 
-import static org.asciidoctor.extension.InlineMacroProcessor.REGEXP;
-import static org.asciidoctor.jruby.AsciidoctorJRuby.Factory.create;
-
 import java.util.EnumSet;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import javax.lang.model.element.Element;
-import javax.lang.model.element.TypeElement;
 
 import com.sun.source.doctree.DocTree;
-import com.sun.source.doctree.LinkTree;
-import com.sun.source.doctree.LiteralTree;
-import com.sun.source.doctree.ReferenceTree;
-import com.sun.source.doctree.TextTree;
-import com.sun.source.doctree.UnknownBlockTagTree;
-import com.sun.source.util.DocTreePath;
-import com.sun.source.util.SimpleDocTreeVisitor;
 import jdk.javadoc.doclet.Doclet;
 import jdk.javadoc.doclet.DocletEnvironment;
 import jdk.javadoc.doclet.Taglet;
-import org.asciidoctor.Asciidoctor;
-import org.asciidoctor.Attributes;
-import org.asciidoctor.Options;
 
 /**
  * Taglet that should work with a {@code @asciidoc} block tags.
@@ -34,17 +19,27 @@
 public class AsciidocTaglet implements Taglet {
 	private static final EnumSet<Location> LOCATIONS = EnumSet.allOf( Location.class );
 
-	private final Asciidoctor asciidoctor;
+	private AsciidoctorRuntime runtime = AsciidoctorRuntime.shared();
 	private DocletEnvironment environment;
 	private LinksHelper linksHelper;
+	private AsciidocSourceWriter writer;
+	private PrerenderedFragments prerendered = PrerenderedFragments.EMPTY;
+	private FragmentCache cache = FragmentCache.disabled();
+	private IncrementalManifest incremental = IncrementalManifest.disabled();
+	private DocletMetrics metrics = DocletMetrics.disabled();
+	private boolean fastPath = true;
+	private final RenderedBlocks rendered;
 
 	public AsciidocTaglet() {
-		asciidoctor = create();
-		// Map should be modifiable (seems like asciidoc internals like to change it.
-		// Specifying regexp here to find the text-snippets to replace, as things aren't picked up automagically ...
-		Map<String, Object> config = new HashMap<>();
-		config.put( REGEXP, "javadoc:([A-Za-z0-9#.$]+)\\[(.*?)\\]" );
-		asciidoctor.javaExtensionRegistry().inlineMacro( new JavadocLinkMacroProcessor( "javadoc", config ) );
+		this( new RenderedBlocks( RenderedBlocks.DEFAULT_MAX_SIZE ) );
+	}
+
+	/**
+	 * @param rendered the blocks already rendered during the run, {@link RenderedBlocks#disabled()} to convert each block
+	 * every time the doclet asks for it.
+	 */
+	AsciidocTaglet(RenderedBlocks rendered) {
+		this.rendered = rendered;
 	}
 
 	@Override
@@ -59,7 +54,7 @@ public boolean isInlineTag() {
 
 	@Override
 	public String getName() {
-		return "asciidoc";
+		return AsciidocPrerenderer.TAG_NAME;
 	}
 
 	@Override
@@ -68,105 +63,71 @@ public void init(DocletEnvironment env, Doclet doclet) {
 		this.environment = env;
 		if ( doclet instanceof Asciidoclet ) {
 			linksHelper = ( (Asciidoclet) doclet ).linksHelper();
+			writer = ( (Asciidoclet) doclet ).sourceWriter();
+			prerendered = ( (Asciidoclet) doclet ).prerendered();
+			cache = ( (Asciidoclet) doclet ).fragmentCache();
+			incremental = ( (Asciidoclet) doclet ).incremental();
+			runtime = ( (Asciidoclet) doclet ).asciidoctorRuntime();
+			metrics = ( (Asciidoclet) doclet ).metrics();
+			fastPath = ( (Asciidoclet) doclet ).fastPath();
 		}
 		else {
 			linksHelper = new LinksHelper( env.getElementUtils(), List.of(), Map.of() );
+			writer = new AsciidocSourceWriter( env.getDocTrees(), linksHelper, true );
 		}
 	}
 
 	@Override
 	public String toString(List<? extends DocTree> tags, Element element) {
-		String text = getText( tags.get( 0 ), element );
-		// before converting the markup we remove the leading space that comes from the comment formatting
-		return asciidoctor.convert( text.replaceAll( "(?m)^[ ]", "" ), Options.builder()
-				.attributes( Attributes.builder()
-						.sourceHighlighter( "coderay" )
-						// using inline styles -- so that we don't need to include a css file in the doclet.
-						// if we'd want to customize it -- we can switch to `class` and then copy css file to the output dir
-						// using a file manager.
-						.attribute( "coderay-css", "style" )
-						.copyCss( true )
-						.build()
-				).build() );
+		String html = render( tags.get( 0 ), element );
+		incremental.record( element, tags.get( 0 ), html );
+		return html;
 	}
 
-	private String getText(DocTree doc, Element element) {
-		return new AsciidocTagDocTreeVisitor( element ).visit( doc, null );
-	}
-
-	private class AsciidocTagDocTreeVisitor extends SimpleDocTreeVisitor<String, Void> {
-		private final Element element;
-
-		public AsciidocTagDocTreeVisitor(Element element) {
-			this.element = element;
+	private String render(DocTree tag, Element element) {
+		String html = prerendered.html( tag, element );
+		if ( html != null ) {
+			metrics.prerenderedHit();
+			return html;
 		}
-
-		@Override
-		public String visitUnknownBlockTag(UnknownBlockTagTree node, Void p) {
-			StringBuilder sb = new StringBuilder();
-			for ( DocTree dt : node.getContent() ) {
-				sb.append( dt.accept( this, null ) );
-			}
-			return sb.toString();
+		String relativePath = linksHelper.relativeLink( element );
+		html = rendered.get( tag, relativePath );
+		if ( html != null ) {
+			metrics.duplicateHit();
+			return html;
 		}
+		html = convert( tag, element );
+		rendered.put( tag, relativePath, html );
+		return html;
+	}
 
-		@Override
-		public String visitText(TextTree node, Void p) {
-			return node.getBody();
-		}
-
-		@Override
-		public String visitLink(LinkTree node, Void unused) {
-			ReferenceTree reference = node.getReference();
-
-			Element referenceElement = environment.getDocTrees().getElement(
-					DocTreePath.getPath(
-							environment.getDocTrees().getPath( element ),
-							environment.getDocTrees().getDocCommentTree( element ),
-							reference
-					) );
-
-			String href = linksHelper.javadocLink( referenceElement, element );
-			String label = getLinkLabel( node.getLabel(), referenceElement );
-
-			return "javadoc:" + "stub" + "[ href='" + href + "', label='" + label + "'] ";
+	private String convert(DocTree tag, Element element) {
+		String html;
+		AsciidocSource source = writer.write( tag, element );
+		if ( fastPath ) {
+			html = FastPathRenderer.render( source );
+			if ( html != null ) {
+				metrics.fastPathRender();
+				return html;
+			}
 		}
-
-		@Override
-		public String visitLiteral(LiteralTree node, Void unused) {
-			if ( DocTree.Kind.CODE.equals( node.getKind() ) ) {
-				return String.format( "`%s`", node.getBody().getBody() );
+		FragmentCache.Key key = cache.key( source );
+		html = cache.get( key );
+		if ( html == null ) {
+			long start = metrics.start();
+			AsciidocConverter converter = runtime.acquire();
+			try {
+				html = converter.convert( source );
 			}
-			else {
-				return node.getBody().getBody();
+			finally {
+				runtime.release();
 			}
+			metrics.conversion( element, source, html, start );
+			cache.put( key, html );
 		}
-
-		/*
-		 * If we have a link with a label we want to get that label to be placed in between a tag.
-		 * Otherwise, we just use whatever the reference element points to as a label.
-		 */
-		@Override
-		protected String defaultAction(DocTree node, Void p) {
-			return "";
-		}
-
-		private String getLinkLabel(List<? extends DocTree> labels, Element referenceElement) {
-			StringBuilder sb = new StringBuilder();
-			labels.forEach( l -> l.accept( new SimpleDocTreeVisitor<String, Void>() {
-				@Override
-				public String visitText(TextTree node, Void unused) {
-					sb.append( node.getBody() );
-					return super.visitText( node, unused );
-				}
-			}, null ) );
-
-			String label = sb.toString();
-			if ( label.isBlank() ) {
-				label = ( referenceElement instanceof TypeElement ) ? referenceElement.toString()
-						: String.format( "%s#%s", referenceElement.getEnclosingElement().getSimpleName(), referenceElement );
-			}
-			return label;
+		else {
+			metrics.cacheHit();
 		}
+		return html;
 	}
 }
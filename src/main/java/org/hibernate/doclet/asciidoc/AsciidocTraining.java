@@ -0,0 +1,71 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.tools.DocumentationTool;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * The training run of the class data sharing (CDS) archive that cuts the startup time of the doclet.
+ * <p>
+ * Runs the {@link Asciidoclet} twice, in this process, on a source with the kinds of {@code @asciidoc} blocks
+ * a typical codebase has: once converting the blocks one by one from the taglet, and once pre-rendering them in batches,
+ * with the other highlighting mode. Started with {@code -XX:ArchiveClassesAtExit=<archive>},
+ * the JVM then dumps all the classes of javadoc, the doclet, AsciidoctorJ and JRuby loaded along the way
+ * into the archive, for the javadoc runs to map instead of loading and verifying them again.
+ * See the README for the exact flags.
+ */
+public final class AsciidocTraining {
+
+	private static final String SAMPLES = "training/Samples.java";
+
+	private AsciidocTraining() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		Path directory = Files.createTempDirectory( "asciidoc-training" );
+		try {
+			Path source = directory.resolve( SAMPLES );
+			Files.createDirectories( source.getParent() );
+			try ( InputStream samples = AsciidocTraining.class.getResourceAsStream( SAMPLES ) ) {
+				Files.copy( samples, source );
+			}
+			run( source, directory.resolve( "taglet" ) );
+			run( source, directory.resolve( "prerender" ),
+					"--asciidoc-prerender-workers", "1", "--asciidoc-batch-size", "8",
+					"--asciidoc-highlight-css", AsciidocConverter.HIGHLIGHT_CSS_CLASSES );
+		}
+		finally {
+			try ( Stream<Path> files = Files.walk( directory ) ) {
+				files.sorted( Comparator.reverseOrder() ).map( Path::toFile ).forEach( File::delete );
+			}
+		}
+	}
+
+	private static void run(Path source, Path output, String... options) throws IOException {
+		DocumentationTool tool = ToolProvider.getSystemDocumentationTool();
+		try ( StandardJavaFileManager fileManager = tool.getStandardFileManager( null, null, null ) ) {
+			List<String> arguments = new ArrayList<>( List.of(
+					"-doclet", Asciidoclet.class.getName(),
+					"-taglet", AsciidocTaglet.class.getName(),
+					"-d", output.toString(),
+					"-quiet",
+					"-Xdoclint:none"
+			) );
+			arguments.addAll( List.of( options ) );
+			boolean success = tool.getTask( null, fileManager, null, null, arguments,
+					fileManager.getJavaFileObjects( source ) ).call();
+			if ( !success ) {
+				throw new IllegalStateException( "The training run of javadoc failed" );
+			}
+		}
+	}
+}
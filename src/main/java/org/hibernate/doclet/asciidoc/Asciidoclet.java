@@ -1,20 +1,74 @@
 package org.hibernate.doclet.asciidoc;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import javax.lang.model.element.Element;
+import javax.tools.Diagnostic;
+import javax.tools.DocumentationTool;
+import javax.tools.FileObject;
+import javax.tools.JavaFileManager;
 
 import jdk.javadoc.doclet.DocletEnvironment;
+import jdk.javadoc.doclet.Reporter;
 import jdk.javadoc.doclet.StandardDoclet;
 
 public class Asciidoclet extends StandardDoclet {
 
+	private static final String HIGHLIGHT_STYLESHEET = "asciidoc-highlight.css";
+	private static final String STYLESHEET = "stylesheet.css";
+
 	private final List<String> links = new ArrayList<>();
 	private final Map<String, String> offlineLinks = new LinkedHashMap<>();
+	private int prerenderWorkers;
+	private int batchSize = 1;
+	private Path cacheDirectory;
+	private long cacheMaxSize = FragmentCache.DEFAULT_MAX_SIZE;
+	private FragmentCache fragmentCache = FragmentCache.disabled();
+	private Path linkCacheDirectory;
+	private Duration linkCacheTtl = ElementListCache.DEFAULT_TTL;
+	private Duration linkTimeout = ElementListCache.DEFAULT_TIMEOUT;
+	private int linkFetchThreads = 8;
+	private AsciidoctorRuntime asciidoctorRuntime;
+	private boolean linkTable = true;
+	private boolean fastPath = true;
+	private String highlightCss = AsciidocConverter.HIGHLIGHT_INLINE_STYLES;
 	private LinksHelper linksHelper;
+	private AsciidocSourceWriter sourceWriter;
+	private PrerenderedFragments prerendered = PrerenderedFragments.EMPTY;
+	private Path metricsReport;
+	private DocletMetrics metrics = DocletMetrics.disabled();
+	private long fragmentMemory = -1;
+	private Path incrementalDirectory;
+	private IncrementalManifest incremental = IncrementalManifest.disabled();
+	private boolean validateLinks;
+	private Path daemonDirectory;
+	private final List<Path> includeDirectories = new ArrayList<>();
+	private Path attributesFile;
+	private AsciidocIncludes includes = AsciidocIncludes.NONE;
+	private LinkValidator linkValidator = LinkValidator.disabled();
+	private Reporter reporter;
+
+	public Asciidoclet() {
+		this( AsciidoctorRuntime.shared() );
+	}
+
+	/**
+	 * @param asciidoctorRuntime the runtime converting the blocks in-process.
+	 */
+	Asciidoclet(AsciidoctorRuntime asciidoctorRuntime) {
+		this.asciidoctorRuntime = asciidoctorRuntime;
+	}
+
 	@Override
 	public String getName() {
 		// For this doclet, the name of the doclet is just the
@@ -24,6 +78,12 @@ public String getName() {
 		return getClass().getSimpleName();
 	}
 
+	@Override
+	public void init(Locale locale, Reporter reporter) {
+		super.init( locale, reporter );
+		this.reporter = reporter;
+	}
+
 	@Override
 	public Set<Option> getSupportedOptions() {
 		Set<Option> supportedOptions = new HashSet<>();
@@ -50,19 +110,453 @@ protected void doProcess(String opt, List<String> arguments) {
 			}
 		}
 
+		supportedOptions.add( new AsciidocOption(
+				"--asciidoc-prerender-workers",
+				"Number of workers, each with its own Asciidoctor runtime, used to convert all the @asciidoc blocks ahead of time. 0 (default) converts blocks one by one while the pages are written.",
+				"<count>"
+		) {
+			@Override
+			protected void doProcess(String opt, List<String> arguments) {
+				prerenderWorkers = Integer.parseInt( arguments.get( 0 ) );
+			}
+		} );
+
+		supportedOptions.add( new AsciidocOption(
+				"--asciidoc-batch-size",
+				"Maximum number of @asciidoc blocks a pre-render worker joins into a single Asciidoctor conversion. Defaults to 1, i.e. no batching.",
+				"<count>"
+		) {
+			@Override
+			protected void doProcess(String opt, List<String> arguments) {
+				batchSize = Integer.parseInt( arguments.get( 0 ) );
+			}
+		} );
+		supportedOptions.add( new AsciidocOption(
+				"--asciidoc-cache-dir",
+				"Directory where the converted @asciidoc blocks are cached between the builds. Caching is disabled if not set.",
+				"<directory>"
+		) {
+			@Override
+			protected void doProcess(String opt, List<String> arguments) {
+				cacheDirectory = Path.of( arguments.get( 0 ) );
+			}
+		} );
+		supportedOptions.add( new AsciidocOption(
+				"--asciidoc-cache-max-size",
+				"Size the cache directory is trimmed down to at the end of the run, e.g. 500k, 100m (default) or 1g.",
+				"<size>"
+		) {
+			@Override
+			protected void doProcess(String opt, List<String> arguments) {
+				cacheMaxSize = parseSize( arguments.get( 0 ) );
+			}
+		} );
+		supportedOptions.add( new AsciidocOption(
+				"--asciidoc-link-cache-dir",
+				"Directory where the element lists of the -link URLs are cached between the builds. Caching is disabled if not set.",
+				"<directory>"
+		) {
+			@Override
+			protected void doProcess(String opt, List<String> arguments) {
+				linkCacheDirectory = Path.of( arguments.get( 0 ) );
+			}
+		} );
+		supportedOptions.add( new AsciidocOption(
+				"--asciidoc-link-cache-ttl",
+				"How long a cached element list is used before it is revalidated with the server, e.g. 90s, 30m, 24h (default) or 7d.",
+				"<duration>"
+		) {
+			@Override
+			protected void doProcess(String opt, List<String> arguments) {
+				linkCacheTtl = parseDuration( arguments.get( 0 ) );
+			}
+		} );
+		supportedOptions.add( new AsciidocOption(
+				"--asciidoc-link-timeout",
+				"Connect and read timeout used when fetching the element list of a -link URL, e.g. 10s or 30s (default).",
+				"<duration>"
+		) {
+			@Override
+			protected void doProcess(String opt, List<String> arguments) {
+				linkTimeout = parseDuration( arguments.get( 0 ) );
+			}
+		} );
+		supportedOptions.add( new AsciidocOption(
+				"--asciidoc-link-fetch-threads",
+				"Max number of -link/-linkoffline element lists fetched at the same time. Defaults to 8.",
+				"<count>"
+		) {
+			@Override
+			protected void doProcess(String opt, List<String> arguments) {
+				linkFetchThreads = Integer.parseInt( arguments.get( 0 ) );
+			}
+		} );
+		supportedOptions.add( new AsciidocOption(
+				"--asciidoc-link-placeholders",
+				"How the resolved {@link} tags are passed to Asciidoctor: 'table' (default) keeps them in a side table and only puts their index into the markup, 'attributes' puts javadoc:stub[ href='...', label='...'] macros into the markup.",
+				"<table|attributes>"
+		) {
+			@Override
+			protected void doProcess(String opt, List<String> arguments) {
+				switch ( arguments.get( 0 ) ) {
+					case "table":
+						linkTable = true;
+						break;
+					case "attributes":
+						linkTable = false;
+						break;
+					default:
+						throw new IllegalArgumentException( "Unknown link placeholders mode: " + arguments.get( 0 ) );
+				}
+			}
+		} );
+		supportedOptions.add( new AsciidocOption(
+				"--asciidoc-highlight-css",
+				"How the highlighted source blocks are styled: 'style' (default) puts the colors into inline style attributes, 'class' uses CSS classes and adds the stylesheet defining them to the output.",
+				"<style|class>"
+		) {
+			@Override
+			protected void doProcess(String opt, List<String> arguments) {
+				switch ( arguments.get( 0 ) ) {
+					case AsciidocConverter.HIGHLIGHT_INLINE_STYLES:
+					case AsciidocConverter.HIGHLIGHT_CSS_CLASSES:
+						highlightCss = arguments.get( 0 );
+						break;
+					default:
+						throw new IllegalArgumentException( "Unknown highlight CSS mode: " + arguments.get( 0 ) );
+				}
+			}
+		} );
+		supportedOptions.add( new AsciidocOption(
+				"--asciidoc-no-fast-path",
+				"Converts all the @asciidoc blocks with Asciidoctor, even the simple ones (plain paragraphs with basic formatting and links) that are otherwise rendered directly.",
+				null
+		) {
+			@Override
+			protected void doProcess(String opt, List<String> arguments) {
+				fastPath = false;
+			}
+		} );
+		supportedOptions.add( new AsciidocOption(
+				"--asciidoc-metrics-report",
+				"File the counts and timings of the Asciidoc conversions, link resolutions and element list reads are written to, as JSON, at the end of the run. Nothing is measured if not set.",
+				"<file>"
+		) {
+			@Override
+			protected void doProcess(String opt, List<String> arguments) {
+				metricsReport = Path.of( arguments.get( 0 ) );
+			}
+		} );
+		supportedOptions.add( new AsciidocOption(
+				"--asciidoc-fragment-memory",
+				"Max size of the pre-rendered and reused @asciidoc fragments kept in memory until the pages are written, e.g. 64m. The least recently used ones are spilled to a temporary file. Unlimited if not set.",
+				"<size>"
+		) {
+			@Override
+			protected void doProcess(String opt, List<String> arguments) {
+				fragmentMemory = parseSize( arguments.get( 0 ) );
+			}
+		} );
+		supportedOptions.add( new AsciidocOption(
+				"--asciidoc-incremental",
+				"Directory keeping the fingerprints of the documented types, along with their converted @asciidoc blocks, between the builds. The blocks of the types that didn't change since the previous build are reused instead of being converted again. Disabled if not set.",
+				"<directory>"
+		) {
+			@Override
+			protected void doProcess(String opt, List<String> arguments) {
+				incrementalDirectory = Path.of( arguments.get( 0 ) );
+			}
+		} );
+		supportedOptions.add( new AsciidocOption(
+				"--asciidoc-validate-links",
+				"Checks that the relative links of the @asciidoc blocks point to pages and members generated by the run, and reports the broken ones at the end of the run.",
+				null
+		) {
+			@Override
+			protected void doProcess(String opt, List<String> arguments) {
+				validateLinks = true;
+			}
+		} );
+		supportedOptions.add( new AsciidocOption(
+				"--asciidoc-daemon",
+				"Directory of a running AsciidocDaemon to send the @asciidoc blocks to, instead of converting them in the javadoc process. The blocks are converted in-process if the daemon isn't running.",
+				"<directory>"
+		) {
+			@Override
+			protected void doProcess(String opt, List<String> arguments) {
+				daemonDirectory = Path.of( arguments.get( 0 ) );
+			}
+		} );
+		supportedOptions.add( new AsciidocOption(
+				"--asciidoc-include-dir",
+				"Directory the include:: directives of the @asciidoc blocks are resolved against, and confined to. Can be repeated, the directories are searched in order. Without it, include:: directives are rendered as links.",
+				"<directory>"
+		) {
+			@Override
+			protected void doProcess(String opt, List<String> arguments) {
+				includeDirectories.add( Path.of( arguments.get( 0 ) ) );
+			}
+		} );
+		supportedOptions.add( new AsciidocOption(
+				"--asciidoc-attributes",
+				"Asciidoc file of attribute entries, e.g. ':product: Hibernate ORM', all the @asciidoc blocks are converted with.",
+				"<file>"
+		) {
+			@Override
+			protected void doProcess(String opt, List<String> arguments) {
+				attributesFile = Path.of( arguments.get( 0 ) );
+			}
+		} );
+
 		return supportedOptions;
 	}
 
 	@Override
 	public boolean run(DocletEnvironment environment) {
-		this.linksHelper = new LinksHelper( environment.getElementUtils(), links, offlineLinks );
-		return super.run( environment );
+		if ( metricsReport != null ) {
+			this.metrics = DocletMetrics.create();
+		}
+		// plenty of modules have no Asciidoc at all, and they shouldn't pay for booting JRuby;
+		// the others get it booting while the links and fingerprints are being prepared:
+		Set<Element> documented = AsciidocPrerenderer.documentedElements( environment );
+		boolean asciidoc = AsciidocPrerenderer.hasAsciidocTags( environment, documented );
+		if ( asciidoc && daemonDirectory == null ) {
+			asciidoctorRuntime.bootInBackground();
+		}
+		this.linksHelper = new LinksHelper(
+				environment.getElementUtils(),
+				links,
+				offlineLinks,
+				linkCacheDirectory == null
+						? ElementListCache.disabled( linkTimeout )
+						: ElementListCache.create( linkCacheDirectory, linkCacheTtl, linkTimeout ),
+				linkFetchThreads,
+				metrics
+		);
+		if ( validateLinks ) {
+			this.linkValidator = LinkValidator.create();
+			linksHelper.validator( linkValidator );
+		}
+		try {
+			this.includes = AsciidocIncludes.create( includeDirectories, attributesFile );
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException( "Unable to read the Asciidoc include directories and attributes", e );
+		}
+		this.asciidoctorRuntime = asciidoctorRuntime.withSettings( highlightCss, includes );
+		// the attributes are inputs of every block just like the sources are, the included files of the blocks including them:
+		String settings = AsciidocConverter.fingerprint( highlightCss ) + includes.fingerprint();
+		this.prerendered = new PrerenderedFragments(
+				fragmentMemory < 0 ? FragmentStore.inMemory() : FragmentStore.spilling( fragmentMemory ) );
+		Set<Element> elements = documented;
+		if ( asciidoc ) {
+			this.sourceWriter = new AsciidocSourceWriter( environment.getDocTrees(), linksHelper,
+					SymbolIndex.create( environment, documented ), reporter, linkTable );
+			if ( cacheDirectory != null ) {
+				this.fragmentCache = FragmentCache.create( cacheDirectory, cacheMaxSize, settings, includes );
+			}
+			if ( incrementalDirectory != null ) {
+				this.incremental = IncrementalManifest.load( incrementalDirectory, settings, includes );
+			}
+			elements = incremental.plan( environment.getDocTrees(), documented, sourceWriter, prerendered );
+			if ( incremental.isEnabled() ) {
+				reporter.print( Diagnostic.Kind.NOTE, String.format( Locale.ROOT,
+						"Asciidoc blocks of %d out of %d types changed since the previous build.",
+						incremental.changedTypes(), incremental.types() ) );
+			}
+		}
+		else {
+			// nothing to index, cache or track: the taglet only ever gets blocks inherited from types that aren't documented
+			this.sourceWriter = new AsciidocSourceWriter(
+					environment.getDocTrees(), linksHelper, SymbolIndex.EMPTY, reporter, linkTable );
+		}
+		AsciidocDaemonClient daemon = asciidoc ? connectDaemon( settings ) : null;
+		try {
+			if ( asciidoc && ( prerenderWorkers > 0 || daemon != null ) ) {
+				AsciidocPrerenderer.prerender(
+						environment, elements, sourceWriter, fragmentCache, asciidoctorRuntime, daemon, prerenderWorkers,
+						batchSize, fastPath(), metrics, prerendered );
+			}
+		}
+		finally {
+			if ( daemon != null ) {
+				daemon.close();
+				if ( daemon.failure() != null ) {
+					reporter.print( Diagnostic.Kind.WARNING,
+							"Lost the connection to the Asciidoc daemon, converting the remaining blocks in-process: "
+									+ daemon.failure().getMessage() );
+				}
+			}
+		}
+		try {
+			boolean success = super.run( environment );
+			if ( success && asciidoc && AsciidocConverter.HIGHLIGHT_CSS_CLASSES.equals( highlightCss ) ) {
+				writeHighlightStylesheet( environment.getJavaFileManager() );
+			}
+			if ( success ) {
+				incremental.save();
+				// against the pages as written, the anchors included
+				linkValidator.report( environment.getJavaFileManager(), reporter );
+			}
+			return success;
+		}
+		finally {
+			prerendered.close();
+			evictFragmentCache();
+			writeMetricsReport();
+		}
+	}
+
+	private AsciidocDaemonClient connectDaemon(String settings) {
+		if ( daemonDirectory == null ) {
+			return null;
+		}
+		try {
+			return AsciidocDaemonClient.connect( daemonDirectory, highlightCss, includes, settings );
+		}
+		catch (IOException e) {
+			reporter.print( Diagnostic.Kind.NOTE,
+					"Asciidoc daemon not available, converting the blocks in-process: " + e.getMessage() );
+			asciidoctorRuntime.bootInBackground();
+			return null;
+		}
+	}
+
+	private void writeHighlightStylesheet(JavaFileManager fileManager) {
+		try {
+			FileObject highlight = fileManager.getFileForOutput(
+					DocumentationTool.Location.DOCUMENTATION_OUTPUT, "", HIGHLIGHT_STYLESHEET, null );
+			try ( Writer writer = highlight.openWriter() ) {
+				AsciidocConverter converter = asciidoctorRuntime.acquire();
+				try {
+					writer.write( converter.highlightStylesheet() );
+				}
+				finally {
+					asciidoctorRuntime.release();
+				}
+				writer.write( '\n' );
+			}
+
+			// every page links the main stylesheet already, importing ours from there saves touching the pages:
+			FileObject stylesheet = fileManager.getFileForOutput(
+					DocumentationTool.Location.DOCUMENTATION_OUTPUT, "", STYLESHEET, null );
+			String css = stylesheet.getCharContent( true ).toString();
+			String importRule = "@import url('" + HIGHLIGHT_STYLESHEET + "');\n";
+			if ( !css.startsWith( importRule ) ) {
+				try ( Writer writer = stylesheet.openWriter() ) {
+					writer.write( importRule );
+					writer.write( css );
+				}
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException( "Unable to write the highlighting stylesheet", e );
+		}
+	}
+
+	private void evictFragmentCache() {
+		try {
+			fragmentCache.evict();
+		}
+		catch (IOException | RuntimeException e) {
+			// the docs are there already, an oversized cache is only trimmed by the next run
+			reporter.print( Diagnostic.Kind.WARNING,
+					"Unable to trim the Asciidoc cache directory " + cacheDirectory + ": " + e );
+		}
+	}
+
+	private void writeMetricsReport() {
+		if ( metricsReport == null ) {
+			return;
+		}
+		try {
+			metrics.write( metricsReport );
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException( "Unable to write the metrics report: " + metricsReport, e );
+		}
 	}
 
 	public LinksHelper linksHelper() {
 		return linksHelper;
 	}
 
+	AsciidocSourceWriter sourceWriter() {
+		return sourceWriter;
+	}
+
+	PrerenderedFragments prerendered() {
+		return prerendered;
+	}
+
+	IncrementalManifest incremental() {
+		return incremental;
+	}
+
+	FragmentCache fragmentCache() {
+		return fragmentCache;
+	}
+
+	boolean fastPath() {
+		// the shared attributes may change how any paragraph renders, e.g. hardbreaks
+		return fastPath && includes.attributes().isEmpty();
+	}
+
+	DocletMetrics metrics() {
+		return metrics;
+	}
+
+	AsciidoctorRuntime asciidoctorRuntime() {
+		return asciidoctorRuntime;
+	}
+
+	static long parseSize(String size) {
+		String value = size.trim().toLowerCase( Locale.ROOT );
+		try {
+			switch ( value.isEmpty() ? ' ' : value.charAt( value.length() - 1 ) ) {
+				case 'g':
+					return Math.multiplyExact( prefix( value ), 1024L * 1024 * 1024 );
+				case 'm':
+					return Math.multiplyExact( prefix( value ), 1024L * 1024 );
+				case 'k':
+					return Math.multiplyExact( prefix( value ), 1024L );
+				default:
+					return Long.parseLong( value );
+			}
+		}
+		catch (ArithmeticException | NumberFormatException e) {
+			throw new IllegalArgumentException( "Invalid size, expected e.g. 512k, 64m or 1g: " + size, e );
+		}
+	}
+
+	static Duration parseDuration(String duration) {
+		String value = duration.trim().toLowerCase( Locale.ROOT );
+		try {
+			switch ( value.isEmpty() ? ' ' : value.charAt( value.length() - 1 ) ) {
+				case 's':
+					return Duration.ofSeconds( prefix( value ) );
+				case 'm':
+					return Duration.ofMinutes( prefix( value ) );
+				case 'h':
+					return Duration.ofHours( prefix( value ) );
+				case 'd':
+					return Duration.ofDays( prefix( value ) );
+				default:
+					return Duration.ofSeconds( Long.parseLong( value ) );
+			}
+		}
+		catch (ArithmeticException | NumberFormatException e) {
+			throw new IllegalArgumentException( "Invalid duration, expected e.g. 30s, 10m, 1h or 7d: " + duration, e );
+		}
+	}
+
+	/**
+	 * @return the amount before the unit suffix of the value.
+	 */
+	private static long prefix(String value) {
+		return Long.parseLong( value.substring( 0, value.length() - 1 ) );
+	}
+
 	private abstract static class DelegatingOption implements Option {
 
 		private final Option option;
@@ -105,4 +599,60 @@ public boolean process(String opt, List<String> arguments) {
 		protected abstract void doProcess(String opt, List<String> arguments);
 	}
 
+	private abstract class AsciidocOption implements Option {
+
+		private final String name;
+		private final String description;
+		private final String parameters;
+
+		private AsciidocOption(String name, String description, String parameters) {
+			this.name = name;
+			this.description = description;
+			this.parameters = parameters;
+		}
+
+		@Override
+		public int getArgumentCount() {
+			return parameters == null ? 0 : 1;
+		}
+
+		@Override
+		public String getDescription() {
+			return description;
+		}
+
+		@Override
+		public Kind getKind() {
+			return Kind.STANDARD;
+		}
+
+		@Override
+		public List<String> getNames() {
+			return List.of( name );
+		}
+
+		@Override
+		public String getParameters() {
+			return parameters == null ? "" : parameters;
+		}
+
+		@Override
+		public boolean process(String opt, List<String> arguments) {
+			try {
+				doProcess( opt, arguments );
+				return true;
+			}
+			catch (NumberFormatException e) {
+				reporter.print( Diagnostic.Kind.ERROR, "Invalid number for " + opt + ": " + arguments.get( 0 ) );
+				return false;
+			}
+			catch (IllegalArgumentException e) {
+				reporter.print( Diagnostic.Kind.ERROR, "Invalid value for " + opt + ": " + e.getMessage() );
+				return false;
+			}
+		}
+
+		protected abstract void doProcess(String opt, List<String> arguments);
+	}
+
 }
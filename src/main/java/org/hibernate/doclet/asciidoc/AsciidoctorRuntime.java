@@ -0,0 +1,160 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the Asciidoctor runtime shared by everything converting the markup on the doclet/taglet side,
+ * so that the cost of booting JRuby is paid at most once per process.
+ * <p>
+ * The runtime is created lazily, either on a background thread, when someone knows it will be needed soon,
+ * or on the calling thread, when the converter is requested before that.
+ * <p>
+ * Several javadoc runs may live in the same process, e.g. the modules of a parallel build, each with its own settings.
+ * Each run gets its own {@link #withSettings(String, AsciidocIncludes) view} of the shared runtime,
+ * and the shared converter is {@link #acquire() acquired} by one of them at a time and configured with its settings.
+ */
+final class AsciidoctorRuntime {
+
+	private static final AsciidoctorRuntime SHARED = new AsciidoctorRuntime(
+			new State(), AsciidocConverter.HIGHLIGHT_INLINE_STYLES, AsciidocIncludes.NONE );
+	private static final int WARM_UP_ROUNDS = 20;
+
+	private final State state;
+	private final String highlightCss;
+	private final AsciidocIncludes includes;
+
+	private AsciidoctorRuntime(State state, String highlightCss, AsciidocIncludes includes) {
+		this.state = state;
+		this.highlightCss = highlightCss;
+		this.includes = includes;
+	}
+
+	static AsciidoctorRuntime shared() {
+		return SHARED;
+	}
+
+	/**
+	 * @return a runtime of its own, not shared with anyone else, e.g. to tell whether a run needed one at all.
+	 */
+	static AsciidoctorRuntime create() {
+		return new AsciidoctorRuntime( new State(), AsciidocConverter.HIGHLIGHT_INLINE_STYLES, AsciidocIncludes.NONE );
+	}
+
+	/**
+	 * @param highlightCss how the source blocks are highlighted, see {@link AsciidocConverter#highlightCss(String)}.
+	 * @param includes what the {@code include::} directives may point to, and the shared attributes,
+	 * see {@link AsciidocConverter#includes(AsciidocIncludes)}.
+	 * @return a view of the same runtime, converting with the given settings.
+	 */
+	AsciidoctorRuntime withSettings(String highlightCss, AsciidocIncludes includes) {
+		return new AsciidoctorRuntime( state, highlightCss, includes );
+	}
+
+	/**
+	 * Starts booting the runtime on a background thread, unless it is already booting or booted.
+	 * Once booted, the runtime also runs a few {@link AsciidocConverter#warmUp() warm-up} conversions,
+	 * so the JIT has a chance to compile the hot paths before the first real block arrives.
+	 */
+	void bootInBackground() {
+		CompletableFuture<AsciidocConverter> future = new CompletableFuture<>();
+		if ( state.converter.compareAndSet( null, future ) ) {
+			Thread thread = new Thread( () -> state.boot( future, WARM_UP_ROUNDS ), "asciidoctor-boot" );
+			thread.setDaemon( true );
+			thread.start();
+		}
+	}
+
+	/**
+	 * @return {@code true} once booting the runtime started, in the background or not.
+	 */
+	boolean isStarted() {
+		return state.converter.get() != null;
+	}
+
+	/**
+	 * @return {@code true} once the runtime is booted and warmed up, or failed to.
+	 */
+	boolean isBooted() {
+		CompletableFuture<AsciidocConverter> future = state.converter.get();
+		return future != null && future.isDone();
+	}
+
+	/**
+	 * @return a new converter, with a runtime of its own, configured with the settings of this view.
+	 * The caller is responsible for closing it.
+	 */
+	AsciidocConverter newConverter() {
+		return configure( new AsciidocConverter() );
+	}
+
+	/**
+	 * @return the shared converter, configured with the settings of this view, waiting for the background boot to finish
+	 * if there's one in progress, and for whoever uses the converter to {@link #release() release} it.
+	 * The caller has to release it once done, on any thread.
+	 */
+	AsciidocConverter acquire() {
+		state.requested = true;
+		CompletableFuture<AsciidocConverter> future = new CompletableFuture<>();
+		if ( state.converter.compareAndSet( null, future ) ) {
+			state.boot( future, 0 );
+		}
+		state.lease.acquireUninterruptibly();
+		try {
+			return configure( state.converter.get().join() );
+		}
+		catch (CompletionException e) {
+			state.lease.release();
+			if ( e.getCause() instanceof RuntimeException ) {
+				throw (RuntimeException) e.getCause();
+			}
+			if ( e.getCause() instanceof Error ) {
+				throw (Error) e.getCause();
+			}
+			throw e;
+		}
+		catch (RuntimeException | Error e) {
+			state.lease.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Gives the shared converter back, see {@link #acquire()}.
+	 */
+	void release() {
+		state.lease.release();
+	}
+
+	private AsciidocConverter configure(AsciidocConverter converter) {
+		converter.highlightCss( highlightCss );
+		converter.includes( includes );
+		return converter;
+	}
+
+	/*
+	 * What the views of the runtime share.
+	 */
+	private static final class State {
+		private final AtomicReference<CompletableFuture<AsciidocConverter>> converter = new AtomicReference<>();
+		// the converter has state of its own for the conversion in progress, e.g. the links of the block
+		private final Semaphore lease = new Semaphore( 1 );
+		// once someone is waiting for the converter, there's no point in warming it up any further
+		private volatile boolean requested;
+
+		private void boot(CompletableFuture<AsciidocConverter> future, int warmUpRounds) {
+			try {
+				AsciidocConverter converter = new AsciidocConverter();
+				for ( int i = 0; i < warmUpRounds && !requested; i++ ) {
+					converter.warmUp();
+				}
+				future.complete( converter );
+			}
+			catch (Throwable e) {
+				future.completeExceptionally( e );
+			}
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * File helpers shared by the on-disk caches.
+ */
+final class CacheFiles {
+
+	private CacheFiles() {
+	}
+
+	/**
+	 * @return the hex encoded SHA-256 of the given strings, each one followed by a {@code \0} separator.
+	 */
+	static String sha256(String... values) {
+		MessageDigest digest = sha256();
+		for ( String value : values ) {
+			update( digest, value );
+		}
+		return hex( digest.digest() );
+	}
+
+	/**
+	 * @return the hex encoded SHA-256 of the content of the file, or for a directory, of the path, size and
+	 * modification time of each of the files in there, as reading all of them could take longer than what the hash saves.
+	 */
+	static String sha256(Path path) throws IOException {
+		MessageDigest digest = sha256();
+		if ( Files.isDirectory( path ) ) {
+			try ( Stream<Path> files = Files.walk( path ) ) {
+				for ( Path file : files.filter( Files::isRegularFile ).sorted().collect( Collectors.toList() ) ) {
+					update( digest, path.relativize( file ).toString() );
+					update( digest, Long.toString( Files.size( file ) ) );
+					update( digest, Files.getLastModifiedTime( file ).toString() );
+				}
+			}
+		}
+		else {
+			try ( InputStream in = Files.newInputStream( path ) ) {
+				byte[] buffer = new byte[8192];
+				for ( int read = in.read( buffer ); read >= 0; read = in.read( buffer ) ) {
+					digest.update( buffer, 0, read );
+				}
+			}
+		}
+		return hex( digest.digest() );
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance( "SHA-256" );
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException( "SHA-256 is expected to be available on every JVM", e );
+		}
+	}
+
+	private static void update(MessageDigest digest, String value) {
+		digest.update( value.getBytes( StandardCharsets.UTF_8 ) );
+		digest.update( (byte) 0 );
+	}
+
+	private static String hex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder( bytes.length * 2 );
+		for ( byte b : bytes ) {
+			sb.append( Character.forDigit( ( b >> 4 ) & 0xF, 16 ) ).append( Character.forDigit( b & 0xF, 16 ) );
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Writes the content to a temporary file next to the target and then moves it in place,
+	 * so that concurrent readers either see the complete previous content or the complete new one.
+	 */
+	static void writeAtomically(Path target, byte[] content) throws IOException {
+		Files.createDirectories( target.getParent() );
+		Path temp = Files.createTempFile( target.getParent(), target.getFileName().toString(), ".tmp" );
+		try {
+			Files.write( temp, content );
+			try {
+				Files.move( temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
+			}
+			catch (AtomicMoveNotSupportedException e) {
+				Files.move( temp, target, StandardCopyOption.REPLACE_EXISTING );
+			}
+		}
+		finally {
+			Files.deleteIfExists( temp );
+		}
+	}
+}
@@ -0,0 +1,296 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.LongAdder;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+
+/**
+ * Counts and times what the doclet spends its time on: the Asciidoc conversions, the link resolutions
+ * and the reading of the element lists. The numbers are written as a JSON report at the end of the run.
+ * <p>
+ * When disabled, none of the methods as much as reads the clock.
+ * The metrics are recorded from the pre-render workers and the element list fetch threads too, hence thread-safe.
+ */
+final class DocletMetrics {
+
+	static final int SLOWEST = 20;
+
+	private static final DocletMetrics DISABLED = new DocletMetrics( false );
+
+	private final boolean enabled;
+	private final long started;
+	private final LongAdder conversions = new LongAdder();
+	private final LongAdder conversionNanos = new LongAdder();
+	private final LongAdder bytesIn = new LongAdder();
+	private final LongAdder bytesOut = new LongAdder();
+	private final LongAdder prerenderedHits = new LongAdder();
+	private final LongAdder cacheHits = new LongAdder();
+	private final LongAdder fastPathRenders = new LongAdder();
+	private final LongAdder duplicateHits = new LongAdder();
+	private final LongAdder externalLinks = new LongAdder();
+	private final LongAdder relativeLinks = new LongAdder();
+	private final LongAdder linkNanos = new LongAdder();
+	// min-heap, so that the fastest of the slowest conversions is the one to go:
+	private final PriorityQueue<Conversion> slowest = new PriorityQueue<>( Comparator.comparingLong( c -> c.nanos ) );
+	private final List<ElementList> elementLists = Collections.synchronizedList( new ArrayList<>() );
+
+	private DocletMetrics(boolean enabled) {
+		this.enabled = enabled;
+		this.started = enabled ? System.nanoTime() : 0L;
+	}
+
+	static DocletMetrics disabled() {
+		return DISABLED;
+	}
+
+	static DocletMetrics create() {
+		return new DocletMetrics( true );
+	}
+
+	boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @return the start time to pass to one of the recording methods.
+	 */
+	long start() {
+		return enabled ? System.nanoTime() : 0L;
+	}
+
+	void conversion(Element element, AsciidocSource source, String html, long start) {
+		if ( enabled ) {
+			timedConversion( element, source, html, System.nanoTime() - start );
+		}
+	}
+
+	/**
+	 * Records a conversion that was timed by the caller, e.g. as a share of a batch.
+	 */
+	void timedConversion(Element element, AsciidocSource source, String html, long nanos) {
+		if ( !enabled ) {
+			return;
+		}
+		long in = utf8Length( source.text() );
+		conversions.increment();
+		conversionNanos.add( nanos );
+		bytesIn.add( in );
+		bytesOut.add( html == null ? 0 : utf8Length( html ) );
+		synchronized ( slowest ) {
+			if ( slowest.size() < SLOWEST ) {
+				slowest.add( new Conversion( element, in, nanos ) );
+			}
+			else if ( slowest.peek().nanos < nanos ) {
+				slowest.poll();
+				slowest.add( new Conversion( element, in, nanos ) );
+			}
+		}
+	}
+
+	void prerenderedHit() {
+		if ( enabled ) {
+			prerenderedHits.increment();
+		}
+	}
+
+	void cacheHit() {
+		if ( enabled ) {
+			cacheHits.increment();
+		}
+	}
+
+	void fastPathRender() {
+		if ( enabled ) {
+			fastPathRenders.increment();
+		}
+	}
+
+	void duplicateHit() {
+		if ( enabled ) {
+			duplicateHits.increment();
+		}
+	}
+
+	/**
+	 * @param external whether the link points to one of the {@code -link}/{@code -linkoffline} docs,
+	 * rather than relatively to the generated docs.
+	 */
+	void link(boolean external, long start) {
+		if ( !enabled ) {
+			return;
+		}
+		linkNanos.add( System.nanoTime() - start );
+		( external ? externalLinks : relativeLinks ).increment();
+	}
+
+	void elementList(String link, String location, int entries, long fetchNanos, long parseNanos) {
+		if ( enabled ) {
+			elementLists.add( new ElementList( link, location, entries, fetchNanos, parseNanos ) );
+		}
+	}
+
+	/**
+	 * Writes the report, all times being in nanoseconds.
+	 */
+	void write(Path file) throws IOException {
+		List<Conversion> conversions;
+		synchronized ( slowest ) {
+			conversions = new ArrayList<>( slowest );
+		}
+		conversions.sort( Comparator.comparingLong( (Conversion c) -> c.nanos ).reversed() );
+		List<ElementList> lists;
+		synchronized ( elementLists ) {
+			lists = new ArrayList<>( elementLists );
+		}
+
+		if ( file.getParent() != null ) {
+			Files.createDirectories( file.getParent() );
+		}
+		try ( Writer out = Files.newBufferedWriter( file, StandardCharsets.UTF_8 ) ) {
+			out.append( "{\n" );
+			out.append( "  \"runNanos\": " ).append( Long.toString( System.nanoTime() - started ) ).append( ",\n" );
+			out.append( "  \"conversions\": {\n" );
+			out.append( "    \"count\": " ).append( this.conversions.toString() ).append( ",\n" );
+			out.append( "    \"nanos\": " ).append( conversionNanos.toString() ).append( ",\n" );
+			out.append( "    \"bytesIn\": " ).append( bytesIn.toString() ).append( ",\n" );
+			out.append( "    \"bytesOut\": " ).append( bytesOut.toString() ).append( ",\n" );
+			out.append( "    \"prerenderedHits\": " ).append( prerenderedHits.toString() ).append( ",\n" );
+			out.append( "    \"cacheHits\": " ).append( cacheHits.toString() ).append( ",\n" );
+			out.append( "    \"fastPathRenders\": " ).append( fastPathRenders.toString() ).append( ",\n" );
+			out.append( "    \"duplicateHits\": " ).append( duplicateHits.toString() ).append( ",\n" );
+			out.append( "    \"slowest\": [" );
+			for ( int i = 0; i < conversions.size(); i++ ) {
+				Conversion conversion = conversions.get( i );
+				out.append( i == 0 ? "\n" : ",\n" )
+						.append( "      { \"element\": " ).append( quote( name( conversion.element ) ) )
+						.append( ", \"nanos\": " ).append( Long.toString( conversion.nanos ) )
+						.append( ", \"bytesIn\": " ).append( Long.toString( conversion.bytesIn ) )
+						.append( " }" );
+			}
+			out.append( conversions.isEmpty() ? "]\n" : "\n    ]\n" );
+			out.append( "  },\n" );
+			out.append( "  \"links\": {\n" );
+			out.append( "    \"count\": " ).append( Long.toString( externalLinks.sum() + relativeLinks.sum() ) ).append( ",\n" );
+			out.append( "    \"external\": " ).append( externalLinks.toString() ).append( ",\n" );
+			out.append( "    \"relative\": " ).append( relativeLinks.toString() ).append( ",\n" );
+			out.append( "    \"nanos\": " ).append( linkNanos.toString() ).append( "\n" );
+			out.append( "  },\n" );
+			out.append( "  \"elementLists\": [" );
+			for ( int i = 0; i < lists.size(); i++ ) {
+				ElementList list = lists.get( i );
+				out.append( i == 0 ? "\n" : ",\n" )
+						.append( "    { \"link\": " ).append( quote( list.link ) )
+						.append( ", \"location\": " ).append( quote( list.location ) )
+						.append( ", \"entries\": " ).append( Integer.toString( list.entries ) )
+						.append( ", \"fetchNanos\": " ).append( Long.toString( list.fetchNanos ) )
+						.append( ", \"parseNanos\": " ).append( Long.toString( list.parseNanos ) )
+						.append( " }" );
+			}
+			out.append( lists.isEmpty() ? "]\n" : "\n  ]\n" );
+			out.append( "}\n" );
+		}
+	}
+
+	private static String name(Element element) {
+		if ( element instanceof TypeElement ) {
+			return ( (TypeElement) element ).getQualifiedName().toString();
+		}
+		Element enclosing = element.getEnclosingElement();
+		if ( enclosing instanceof TypeElement ) {
+			return ( (TypeElement) enclosing ).getQualifiedName() + "#" + element;
+		}
+		return element.toString();
+	}
+
+	private static String quote(String value) {
+		StringBuilder sb = new StringBuilder( value.length() + 2 ).append( '"' );
+		for ( int i = 0; i < value.length(); i++ ) {
+			char c = value.charAt( i );
+			switch ( c ) {
+				case '"':
+					sb.append( "\\\"" );
+					break;
+				case '\\':
+					sb.append( "\\\\" );
+					break;
+				case '\n':
+					sb.append( "\\n" );
+					break;
+				case '\r':
+					sb.append( "\\r" );
+					break;
+				case '\t':
+					sb.append( "\\t" );
+					break;
+				default:
+					if ( c < 0x20 ) {
+						sb.append( String.format( "\\u%04x", (int) c ) );
+					}
+					else {
+						sb.append( c );
+					}
+			}
+		}
+		return sb.append( '"' ).toString();
+	}
+
+	private static long utf8Length(String text) {
+		long length = 0;
+		for ( int i = 0; i < text.length(); i++ ) {
+			char c = text.charAt( i );
+			if ( c < 0x80 ) {
+				length++;
+			}
+			else if ( c < 0x800 ) {
+				length += 2;
+			}
+			else if ( Character.isHighSurrogate( c ) ) {
+				// the whole surrogate pair
+				length += 4;
+				i++;
+			}
+			else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+	private static final class Conversion {
+		private final Element element;
+		private final long bytesIn;
+		private final long nanos;
+
+		private Conversion(Element element, long bytesIn, long nanos) {
+			this.element = element;
+			this.bytesIn = bytesIn;
+			this.nanos = nanos;
+		}
+	}
+
+	private static final class ElementList {
+		private final String link;
+		private final String location;
+		private final int entries;
+		private final long fetchNanos;
+		private final long parseNanos;
+
+		private ElementList(String link, String location, int entries, long fetchNanos, long parseNanos) {
+			this.link = link;
+			this.location = location;
+			this.entries = entries;
+			this.fetchNanos = fetchNanos;
+			this.parseNanos = parseNanos;
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Properties;
+
+/**
+ * On-disk cache of the {@code element-list}/{@code package-list} files fetched for the {@code -link} options,
+ * keyed by the URL of the list.
+ * <p>
+ * An entry younger than the configured time-to-live is used without going to the network at all.
+ * Older entries are revalidated with a conditional request, using the {@code ETag}/{@code Last-Modified}
+ * the server returned along with the list. If the list cannot be fetched, e.g. because the build runs offline,
+ * a stale entry is used instead of failing the build.
+ */
+final class ElementListCache {
+
+	static final Duration DEFAULT_TTL = Duration.ofHours( 24 );
+	static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds( 30 );
+
+	private static final String CONTENT_SUFFIX = ".list";
+	private static final String METADATA_SUFFIX = ".properties";
+	private static final String URL = "url";
+	private static final String ETAG = "etag";
+	private static final String LAST_MODIFIED = "last-modified";
+	private static final String FETCHED_AT = "fetched-at";
+
+	private final Path directory;
+	private final Duration ttl;
+	private final int timeout;
+
+	private ElementListCache(Path directory, Duration ttl, Duration timeout) {
+		this.directory = directory;
+		this.ttl = ttl;
+		this.timeout = Math.toIntExact( timeout.toMillis() );
+	}
+
+	/**
+	 * @param timeout the connect and the read timeouts used when fetching the lists.
+	 */
+	static ElementListCache disabled(Duration timeout) {
+		return new ElementListCache( null, Duration.ZERO, timeout );
+	}
+
+	/**
+	 * @param timeout the connect and the read timeouts used when fetching the lists.
+	 */
+	static ElementListCache create(Path directory, Duration ttl, Duration timeout) {
+		try {
+			Files.createDirectories( directory );
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException( "Unable to create the element list cache directory: " + directory, e );
+		}
+		return new ElementListCache( directory, ttl, timeout );
+	}
+
+	/**
+	 * @return the content of the list, either from the cache or from the URL.
+	 * @throws IOException if the list can neither be fetched nor found in the cache.
+	 */
+	InputStream open(URL url) throws IOException {
+		if ( directory == null || !isHttp( url ) ) {
+			return connect( url ).getInputStream();
+		}
+
+		String hash = CacheFiles.sha256( url.toString() );
+		Path content = directory.resolve( hash + CONTENT_SUFFIX );
+		Path metadataFile = directory.resolve( hash + METADATA_SUFFIX );
+		Properties metadata = readMetadata( metadataFile );
+		byte[] cached = metadata == null ? null : readContent( content );
+		if ( cached == null ) {
+			metadata = null;
+		}
+		long now = System.currentTimeMillis();
+
+		if ( metadata != null && now - Long.parseLong( metadata.getProperty( FETCHED_AT, "0" ) ) < ttl.toMillis() ) {
+			return new ByteArrayInputStream( cached );
+		}
+
+		try {
+			HttpURLConnection connection = (HttpURLConnection) connect( url );
+			try {
+				if ( metadata != null ) {
+					if ( metadata.getProperty( ETAG ) != null ) {
+						connection.setRequestProperty( "If-None-Match", metadata.getProperty( ETAG ) );
+					}
+					if ( metadata.getProperty( LAST_MODIFIED ) != null ) {
+						connection.setRequestProperty( "If-Modified-Since", metadata.getProperty( LAST_MODIFIED ) );
+					}
+				}
+
+				if ( metadata != null && connection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED ) {
+					metadata.setProperty( FETCHED_AT, Long.toString( now ) );
+					writeMetadata( metadataFile, metadata );
+					return new ByteArrayInputStream( cached );
+				}
+
+				byte[] fetched;
+				try ( InputStream input = connection.getInputStream() ) {
+					fetched = input.readAllBytes();
+				}
+				try {
+					CacheFiles.writeAtomically( content, fetched );
+					writeMetadata( metadataFile, metadata( url, connection, now ) );
+				}
+				catch (IOException e) {
+					// the list will simply be fetched again next time, no reason to fail the link
+				}
+				return new ByteArrayInputStream( fetched );
+			}
+			finally {
+				connection.disconnect();
+			}
+		}
+		catch (IOException e) {
+			if ( cached == null ) {
+				throw e;
+			}
+			// can't reach the server, a stale list is still better than a failed build:
+			return new ByteArrayInputStream( cached );
+		}
+	}
+
+	private URLConnection connect(URL url) throws IOException {
+		URLConnection connection = url.openConnection();
+		connection.setConnectTimeout( timeout );
+		connection.setReadTimeout( timeout );
+		return connection;
+	}
+
+	private static boolean isHttp(URL url) {
+		return "http".equalsIgnoreCase( url.getProtocol() ) || "https".equalsIgnoreCase( url.getProtocol() );
+	}
+
+	private static Properties metadata(URL url, URLConnection connection, long fetchedAt) {
+		Properties metadata = new Properties();
+		metadata.setProperty( URL, url.toString() );
+		metadata.setProperty( FETCHED_AT, Long.toString( fetchedAt ) );
+		if ( connection.getHeaderField( "ETag" ) != null ) {
+			metadata.setProperty( ETAG, connection.getHeaderField( "ETag" ) );
+		}
+		if ( connection.getHeaderField( "Last-Modified" ) != null ) {
+			metadata.setProperty( LAST_MODIFIED, connection.getHeaderField( "Last-Modified" ) );
+		}
+		return metadata;
+	}
+
+	private static Properties readMetadata(Path file) {
+		try ( InputStream input = Files.newInputStream( file ) ) {
+			Properties metadata = new Properties();
+			metadata.load( input );
+			// checked upfront, so that a corrupt or hand-edited file is a cache miss rather than a failed run:
+			Long.parseLong( metadata.getProperty( FETCHED_AT, "0" ) );
+			return metadata;
+		}
+		catch (IOException | IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	private static byte[] readContent(Path file) {
+		try {
+			return Files.readAllBytes( file );
+		}
+		catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static void writeMetadata(Path file, Properties metadata) {
+		try {
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			metadata.store( output, null );
+			CacheFiles.writeAtomically( file, output.toByteArray() );
+		}
+		catch (IOException e) {
+			// the list will simply be fetched again next time
+		}
+	}
+}
@@ -0,0 +1,282 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Renders the simplest, and most common, Asciidoc blocks without going through Asciidoctor:
+ * paragraphs of plain text with constrained {@code *strong*}, {@code _emphasis_} and {@code `code`},
+ * and the {@code javadoc:<index>[]} link placeholders.
+ * <p>
+ * The HTML is the same Asciidoctor would produce, byte for byte.
+ * To keep it that way, the detection is conservative: any character or sequence that Asciidoctor might give a meaning to,
+ * i.e. block delimiters, lists, attributes, macros, replacements, passthroughs, nested or unconstrained formatting,
+ * makes the renderer give up on the block and leave it to Asciidoctor.
+ */
+final class FastPathRenderer {
+
+	private static final String LINK_PREFIX = "javadoc:";
+	private static final Pattern LIST_ITEM = Pattern.compile( "^(?:\\d+|[a-zA-Z]|[ivxIVX]+)[.)] " );
+	private static final Pattern ADMONITION = Pattern.compile( "^(?:NOTE|TIP|IMPORTANT|WARNING|CAUTION): " );
+
+	private FastPathRenderer() {
+	}
+
+	/**
+	 * @return the HTML of the source, or {@code null} if the source uses anything beyond the simple subset.
+	 */
+	static String render(AsciidocSource source) {
+		String text = source.text();
+		List<AsciidocSource.Link> links = source.links();
+		StringBuilder html = new StringBuilder( text.length() + 64 );
+		boolean inParagraph = false;
+		int start = 0;
+		while ( start <= text.length() ) {
+			int end = text.indexOf( '\n', start );
+			if ( end < 0 ) {
+				end = text.length();
+			}
+			int lineEnd = end;
+			// trailing whitespace is dropped, just like Asciidoctor's reader does:
+			while ( lineEnd > start && text.charAt( lineEnd - 1 ) == ' ' ) {
+				lineEnd--;
+			}
+
+			if ( lineEnd == start ) {
+				if ( inParagraph ) {
+					html.append( "</p>\n</div>" );
+					inParagraph = false;
+				}
+			}
+			else {
+				String line = text.substring( start, lineEnd );
+				if ( !isParagraphLine( line ) ) {
+					return null;
+				}
+				if ( inParagraph ) {
+					html.append( '\n' );
+				}
+				else {
+					if ( html.length() > 0 ) {
+						html.append( '\n' );
+					}
+					html.append( "<div class=\"paragraph\">\n<p>" );
+					inParagraph = true;
+				}
+				if ( !appendLine( html, line, 0, line.length(), links, true ) ) {
+					return null;
+				}
+			}
+			start = end + 1;
+		}
+		if ( inParagraph ) {
+			html.append( "</p>\n</div>" );
+		}
+		return html.toString();
+	}
+
+	/*
+	 * Anything that could start some other kind of block, a list item or a block title/attribute line.
+	 */
+	private static boolean isParagraphLine(String line) {
+		switch ( line.charAt( 0 ) ) {
+			case ' ':
+			case '-':
+			case '.':
+			case '=':
+			case '<':
+			case '/':
+			case ':':
+				return false;
+			default:
+				return !LIST_ITEM.matcher( line ).find() && !ADMONITION.matcher( line ).find();
+		}
+	}
+
+	/**
+	 * @param formatting whether formatting marks may appear, i.e. we're not within one already.
+	 * @return {@code false} if the text is not within the supported subset.
+	 */
+	private static boolean appendLine(StringBuilder html, String line, int from, int to,
+			List<AsciidocSource.Link> links, boolean formatting) {
+		int i = from;
+		while ( i < to ) {
+			char c = line.charAt( i );
+			char next = i + 1 < to ? line.charAt( i + 1 ) : '\0';
+			switch ( c ) {
+				case '*':
+				case '_':
+				case '`': {
+					if ( next == c ) {
+						// unconstrained formatting
+						return false;
+					}
+					// a mark within a word, e.g. CONSTANT_NAME, or surrounded by spaces cannot start a constrained pair,
+					// and, as pairs are consumed as a whole, there's no pair it could close either:
+					if ( i > 0 && ( Character.isLetterOrDigit( line.charAt( i - 1 ) )
+							|| line.charAt( i - 1 ) == ' ' && ( next == '\0' || next == ' ' ) ) ) {
+						html.append( c );
+						break;
+					}
+					if ( !formatting ) {
+						return false;
+					}
+					int close = closingMark( line, i, to );
+					if ( close < 0 ) {
+						return false;
+					}
+					String tag = c == '*' ? "strong" : c == '_' ? "em" : "code";
+					html.append( '<' ).append( tag ).append( '>' );
+					if ( !appendLine( html, line, i + 1, close, links, false ) ) {
+						return false;
+					}
+					html.append( "</" ).append( tag ).append( '>' );
+					i = close + 1;
+					continue;
+				}
+				case 'j': {
+					int end = linkPlaceholderEnd( line, i, to, links );
+					if ( end > 0 ) {
+						AsciidocSource.Link link = links.get(
+								Integer.parseInt( line.substring( i + LINK_PREFIX.length(), end - 2 ) ) );
+						// escaped just like the macro processor does:
+						html.append( "<a href=\"" ).append( link.escapedHref() ).append( "\">" ).append( link.escapedLabel() )
+								.append( "</a>" );
+						i = end;
+						continue;
+					}
+					html.append( c );
+					break;
+				}
+				case '<':
+					// arrow replacements and cross references
+					if ( next == '<' || next == '-' || next == '=' ) {
+						return false;
+					}
+					html.append( "&lt;" );
+					break;
+				case '>':
+					html.append( "&gt;" );
+					break;
+				case '-':
+				case '=':
+					// em-dashes and arrows
+					if ( next == '-' || next == '>' ) {
+						return false;
+					}
+					html.append( c );
+					break;
+				case '.':
+					// ellipsis
+					if ( next == '.' && i + 2 < to && line.charAt( i + 2 ) == '.' ) {
+						return false;
+					}
+					html.append( c );
+					break;
+				case ':':
+					// macros, URLs, description lists
+					if ( next != '\0' && next != ' ' ) {
+						return false;
+					}
+					html.append( c );
+					break;
+				case ';':
+					if ( next == ';' ) {
+						return false;
+					}
+					html.append( c );
+					break;
+				case '(':
+					// index terms and the (C), (R), (TM) replacements
+					if ( next == '(' || line.startsWith( "C)", i + 1 ) || line.startsWith( "R)", i + 1 )
+							|| line.startsWith( "TM)", i + 1 ) ) {
+						return false;
+					}
+					html.append( c );
+					break;
+				case ')':
+					if ( next == ')' ) {
+						return false;
+					}
+					html.append( c );
+					break;
+				// attribute references, macro attributes, escapes, passthroughs, the other formatting marks,
+				// smart quotes and apostrophes, character references, email addresses, tables:
+				case '{':
+				case '}':
+				case '[':
+				case ']':
+				case '\\':
+				case '+':
+				case '$':
+				case '#':
+				case '^':
+				case '~':
+				case '"':
+				case '\'':
+				case '&':
+				case '@':
+				case '|':
+					return false;
+				default:
+					if ( Character.isISOControl( c ) || c == '\u2028' || c == '\u2029' ) {
+						return false;
+					}
+					html.append( c );
+			}
+			i++;
+		}
+		return true;
+	}
+
+	/*
+	 * A constrained pair: the opening mark at the start of the line or after a space or a parenthesis,
+	 * some text not starting or ending with a space, and the closing mark followed by the end of the line,
+	 * a space or a punctuation mark. Anything else might still be formatted by Asciidoctor in a way we don't replicate.
+	 */
+	private static int closingMark(String line, int open, int to) {
+		char mark = line.charAt( open );
+		if ( open > 0 && line.charAt( open - 1 ) != ' ' && line.charAt( open - 1 ) != '(' ) {
+			return -1;
+		}
+		int close = line.indexOf( mark, open + 1 );
+		if ( close < 0 || close >= to || close == open + 1
+				|| line.charAt( open + 1 ) == ' ' || line.charAt( close - 1 ) == ' ' ) {
+			return -1;
+		}
+		if ( close + 1 < to ) {
+			switch ( line.charAt( close + 1 ) ) {
+				case ' ':
+				case '.':
+				case ',':
+				case ';':
+				case ':':
+				case '!':
+				case '?':
+				case ')':
+					break;
+				default:
+					return -1;
+			}
+		}
+		return close;
+	}
+
+	/*
+	 * @return the index right after a javadoc:<index>[] placeholder pointing into the side table, or -1.
+	 */
+	private static int linkPlaceholderEnd(String line, int start, int to, List<AsciidocSource.Link> links) {
+		if ( !line.startsWith( LINK_PREFIX, start ) ) {
+			return -1;
+		}
+		int i = start + LINK_PREFIX.length();
+		int digits = i;
+		while ( i < to && i - digits < 9 && Character.isDigit( line.charAt( i ) ) && line.charAt( i ) < 0x80 ) {
+			i++;
+		}
+		if ( i == digits || i + 1 >= to || line.charAt( i ) != '[' || line.charAt( i + 1 ) != ']' ) {
+			return -1;
+		}
+		return Integer.parseInt( line.substring( digits, i ) ) < links.size() ? i + 2 : -1;
+	}
+}
@@ -0,0 +1,228 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Content-addressed, on-disk cache of the converted Asciidoc fragments, shared between the builds.
+ * <p>
+ * The entries are keyed by a hash of the Asciidoc source, the resolved links
+ * and the conversion settings, so a changed comment, link target or attribute simply results in a different entry.
+ * Entries are written to a temporary file first and then moved in place,
+ * which makes it safe for concurrent javadoc runs to share the same cache directory.
+ * Once the cache grows over the configured size, the least recently used entries are removed,
+ * along with the temporary files of the runs that crashed before moving them in place.
+ */
+final class FragmentCache {
+
+	static final long DEFAULT_MAX_SIZE = 100L * 1024 * 1024;
+
+	private static final FragmentCache DISABLED = new FragmentCache( null, 0, "", AsciidocIncludes.NONE );
+	// bump whenever the way fragments are produced changes in a way not captured by the key
+	private static final String FORMAT_VERSION = "1";
+	private static final String ENTRY_SUFFIX = ".html";
+	private static final String LOCK_FILE = ".lock";
+	private static final String TEMP_SUFFIX = ".tmp";
+	// a temporary file older than that is left over by a run that crashed while writing it
+	private static final long ORPHAN_AGE_MILLIS = 60 * 60 * 1000L;
+
+	private final Path directory;
+	private final long maxSize;
+	private final String fingerprint;
+	private final AsciidocIncludes includes;
+
+	private FragmentCache(Path directory, long maxSize, String fingerprint, AsciidocIncludes includes) {
+		this.directory = directory;
+		this.maxSize = maxSize;
+		this.fingerprint = fingerprint;
+		this.includes = includes;
+	}
+
+	static FragmentCache disabled() {
+		return DISABLED;
+	}
+
+	/**
+	 * @param directory where the entries are stored.
+	 * @param maxSize the size in bytes the cache is trimmed down to by {@link #evict()}.
+	 * @param fingerprint identifies the conversion settings, e.g. the attributes passed to Asciidoctor.
+	 */
+	static FragmentCache create(Path directory, long maxSize, String fingerprint) {
+		return create( directory, maxSize, fingerprint, AsciidocIncludes.NONE );
+	}
+
+	/**
+	 * @param includes the files the blocks include, each entry is only valid as long as the files its block includes don't change.
+	 */
+	static FragmentCache create(Path directory, long maxSize, String fingerprint, AsciidocIncludes includes) {
+		try {
+			Files.createDirectories( directory );
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException( "Unable to create the Asciidoc cache directory: " + directory, e );
+		}
+		return new FragmentCache( directory, maxSize, FORMAT_VERSION + ";" + fingerprint, includes );
+	}
+
+	boolean isEnabled() {
+		return directory != null;
+	}
+
+	Key key(AsciidocSource source) {
+		if ( !isEnabled() ) {
+			return null;
+		}
+		String[] values = new String[2 + source.links().size() * 2];
+		String included = includes.fingerprint( source.text() );
+		values[0] = included.isEmpty() ? fingerprint : fingerprint + ";included=" + included;
+		values[1] = source.text();
+		for ( int i = 0; i < source.links().size(); i++ ) {
+			values[2 + i * 2] = source.links().get( i ).href();
+			values[3 + i * 2] = source.links().get( i ).label();
+		}
+		return new Key( CacheFiles.sha256( values ) );
+	}
+
+	/**
+	 * @return the cached HTML or {@code null} if there's no entry for the key.
+	 */
+	String get(Key key) {
+		if ( key == null ) {
+			return null;
+		}
+		Path entry = entry( key );
+		try {
+			String html = Files.readString( entry, StandardCharsets.UTF_8 );
+			// the modification time is what the eviction uses to find the least recently used entries:
+			Files.setLastModifiedTime( entry, FileTime.fromMillis( System.currentTimeMillis() ) );
+			return html;
+		}
+		catch (NoSuchFileException e) {
+			return null;
+		}
+		catch (IOException e) {
+			// an entry that cannot be read is as good as a missing one, we'll just convert the block again.
+			return null;
+		}
+	}
+
+	void put(Key key, String html) {
+		if ( key == null ) {
+			return;
+		}
+		try {
+			CacheFiles.writeAtomically( entry( key ), html.getBytes( StandardCharsets.UTF_8 ) );
+		}
+		catch (IOException e) {
+			// failing to cache a fragment shouldn't fail the build
+		}
+	}
+
+	/**
+	 * Removes the orphaned temporary files, and the least recently used entries until the cache fits into its max size.
+	 * If some other process is already trimming the same cache, this one simply skips it.
+	 * The files that concurrent runs move or delete in the meantime are skipped.
+	 */
+	void evict() throws IOException {
+		if ( !isEnabled() ) {
+			return;
+		}
+		try ( FileChannel channel = FileChannel.open(
+				directory.resolve( LOCK_FILE ), StandardOpenOption.CREATE, StandardOpenOption.WRITE );
+				FileLock lock = channel.tryLock() ) {
+			if ( lock == null ) {
+				return;
+			}
+			List<Entry> entries = new ArrayList<>();
+			long orphanedBefore = System.currentTimeMillis() - ORPHAN_AGE_MILLIS;
+			Files.walkFileTree( directory, Set.of(), 2, new SimpleFileVisitor<>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+					String name = file.getFileName().toString();
+					if ( name.endsWith( ENTRY_SUFFIX ) ) {
+						entries.add( new Entry( file, attributes.size(), attributes.lastModifiedTime().toMillis() ) );
+					}
+					else if ( name.endsWith( TEMP_SUFFIX ) && name.contains( ENTRY_SUFFIX )
+							&& attributes.lastModifiedTime().toMillis() < orphanedBefore ) {
+						// a recent one may still be written by a concurrent run
+						delete( file );
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException e) {
+					// e.g. a temporary file a concurrent run moved in place in the meantime
+					return FileVisitResult.CONTINUE;
+				}
+			} );
+			long total = 0;
+			for ( Entry entry : entries ) {
+				total += entry.size;
+			}
+			if ( total <= maxSize ) {
+				return;
+			}
+			entries.sort( Comparator.comparingLong( e -> e.lastModified ) );
+			for ( Entry entry : entries ) {
+				if ( total <= maxSize ) {
+					break;
+				}
+				if ( delete( entry.path ) ) {
+					total -= entry.size;
+				}
+			}
+		}
+	}
+
+	private static boolean delete(Path file) {
+		try {
+			Files.deleteIfExists( file );
+			return true;
+		}
+		catch (IOException e) {
+			// might be in use by a concurrent run, we'll get it next time
+			return false;
+		}
+	}
+
+	private Path entry(Key key) {
+		// spread the entries into subdirectories so that none of them ends up with too many files:
+		return directory.resolve( key.hash.substring( 0, 2 ) ).resolve( key.hash + ENTRY_SUFFIX );
+	}
+
+	static final class Key {
+		private final String hash;
+
+		private Key(String hash) {
+			this.hash = hash;
+		}
+	}
+
+	private static final class Entry {
+		private final Path path;
+		private final long size;
+		private final long lastModified;
+
+		private Entry(Path path, long size, long lastModified) {
+			this.path = path;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.lang.model.element.Element;
+
+/**
+ * Keeps the HTML of the pre-rendered fragments until the taglet asks for it.
+ * <p>
+ * Unless created with a memory limit, everything stays on the heap. With a limit, the least recently used fragments
+ * that don't fit in memory anymore are appended to a temporary file, and only their offset and length are kept.
+ * Looking such a fragment up reads it back with a positional read, so the heap doesn't grow with the total size
+ * of the converted docs, the file isn't limited to what a single mapping covers, and nothing keeps it open
+ * once the store is closed.
+ * <p>
+ * The size of a fragment is counted as its length in characters, which is about its size in bytes for mostly ASCII HTML.
+ * A store is not thread-safe.
+ */
+final class FragmentStore implements AutoCloseable {
+
+	private final long memoryLimit;
+	private final Map<Element, String> memory = new LinkedHashMap<>( 64, 0.75f, true );
+	private final Map<Element, Slot> spilled = new HashMap<>();
+	private long memorySize;
+	private Path file;
+	private FileChannel channel;
+	private long fileSize;
+
+	private FragmentStore(long memoryLimit) {
+		this.memoryLimit = memoryLimit;
+	}
+
+	static FragmentStore inMemory() {
+		return new FragmentStore( Long.MAX_VALUE );
+	}
+
+	/**
+	 * @param memoryLimit the total size of the fragments kept in memory, the others go to the file.
+	 */
+	static FragmentStore spilling(long memoryLimit) {
+		return new FragmentStore( memoryLimit );
+	}
+
+	void put(Element element, String html) {
+		String previous = memory.put( element, html );
+		if ( previous != null ) {
+			memorySize -= previous.length();
+		}
+		spilled.remove( element );
+		memorySize += html.length();
+		if ( memorySize > memoryLimit ) {
+			spill();
+		}
+	}
+
+	/**
+	 * @return the HTML of the element's fragment, or {@code null} if there is none.
+	 */
+	String get(Element element) {
+		String html = memory.get( element );
+		if ( html != null ) {
+			return html;
+		}
+		Slot slot = spilled.get( element );
+		return slot == null ? null : read( slot );
+	}
+
+	/**
+	 * @return the file the fragments are spilled to, or {@code null} if none was needed so far.
+	 */
+	Path file() {
+		return file;
+	}
+
+	@Override
+	public void close() {
+		memory.clear();
+		spilled.clear();
+		if ( channel == null ) {
+			return;
+		}
+		try {
+			channel.close();
+			Files.deleteIfExists( file );
+		}
+		catch (IOException e) {
+			// it's a temporary file anyway
+		}
+		finally {
+			channel = null;
+		}
+	}
+
+	private void spill() {
+		try {
+			if ( channel == null ) {
+				file = Files.createTempFile( "asciidoc-fragments", ".html" );
+				file.toFile().deleteOnExit();
+				channel = FileChannel.open( file, StandardOpenOption.READ, StandardOpenOption.WRITE );
+			}
+			Iterator<Map.Entry<Element, String>> entries = memory.entrySet().iterator();
+			while ( memorySize > memoryLimit && entries.hasNext() ) {
+				Map.Entry<Element, String> entry = entries.next();
+				byte[] bytes = entry.getValue().getBytes( StandardCharsets.UTF_8 );
+				ByteBuffer buffer = ByteBuffer.wrap( bytes );
+				while ( buffer.hasRemaining() ) {
+					fileSize += channel.write( buffer, fileSize );
+				}
+				spilled.put( entry.getKey(), new Slot( fileSize - bytes.length, bytes.length ) );
+				memorySize -= entry.getValue().length();
+				entries.remove();
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException( "Unable to spill the pre-rendered fragments to " + file, e );
+		}
+	}
+
+	private String read(Slot slot) {
+		try {
+			byte[] bytes = new byte[slot.length];
+			ByteBuffer buffer = ByteBuffer.wrap( bytes );
+			while ( buffer.hasRemaining() ) {
+				if ( channel.read( buffer, slot.offset + buffer.position() ) < 0 ) {
+					throw new EOFException( "Fragment at " + slot.offset + " is past the end of the file" );
+				}
+			}
+			return new String( bytes, StandardCharsets.UTF_8 );
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException( "Unable to read a pre-rendered fragment back from " + file, e );
+		}
+	}
+
+	private static final class Slot {
+		private final long offset;
+		private final int length;
+
+		private Slot(long offset, int length) {
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+}
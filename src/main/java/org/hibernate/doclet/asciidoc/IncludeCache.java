@@ -0,0 +1,60 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Content of the files included by the {@code @asciidoc} blocks, keyed by their path.
+ * <p>
+ * A file is read once, through a memory mapping, and then served from memory for as long as its modification time
+ * and size stay the same. Each {@link AsciidocIncludes} has its own, so the cache lives as long as the run, or the daemon
+ * connection, it belongs to; a file is still checked for changes every time it is included, as it may be edited meanwhile.
+ * Included files are expected to be a handful of snippets, so nothing is evicted before then.
+ */
+final class IncludeCache {
+
+	private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+
+	IncludeCache() {
+	}
+
+	String read(Path file) throws IOException {
+		BasicFileAttributes attributes = Files.readAttributes( file, BasicFileAttributes.class );
+		Entry entry = entries.get( file );
+		if ( entry != null && entry.size == attributes.size() && entry.modified.equals( attributes.lastModifiedTime() ) ) {
+			return entry.content;
+		}
+		String content = map( file );
+		entries.put( file, new Entry( attributes.lastModifiedTime(), attributes.size(), content ) );
+		return content;
+	}
+
+	private static String map(Path file) throws IOException {
+		try ( FileChannel channel = FileChannel.open( file ) ) {
+			if ( channel.size() == 0 ) {
+				return "";
+			}
+			return StandardCharsets.UTF_8.decode( channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() ) )
+					.toString();
+		}
+	}
+
+	private static final class Entry {
+		private final FileTime modified;
+		private final long size;
+		private final String content;
+
+		private Entry(FileTime modified, long size, String content) {
+			this.modified = modified;
+			this.size = size;
+			this.content = content;
+		}
+	}
+}
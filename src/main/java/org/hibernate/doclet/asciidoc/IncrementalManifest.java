@@ -0,0 +1,322 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ModuleElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+
+import com.sun.source.doctree.DocTree;
+import com.sun.source.util.DocTrees;
+import jdk.javadoc.doclet.DocletEnvironment;
+
+/**
+ * Keeps the fingerprints of the documented types, and the converted {@code @asciidoc} blocks of each of them,
+ * from one run to the next, so that only the blocks of the types that changed since the previous run are converted again.
+ * <p>
+ * The fingerprint of a type covers the Asciidoc source of the blocks of the type and its members,
+ * the targets the {@code {@link}} tags of those blocks resolve to and the conversion settings.
+ * Packages and modules are tracked the same way as types.
+ * <p>
+ * Each type has its own file of fragments, written atomically and carrying the fingerprint it was converted for,
+ * so that a manifest and fragments written by different runs cannot get mixed up.
+ */
+final class IncrementalManifest {
+
+	private static final IncrementalManifest DISABLED = new IncrementalManifest( null, "", AsciidocIncludes.NONE );
+	// bump whenever the format of the files or the way fragments are produced changes
+	private static final String FORMAT_VERSION = "1";
+	private static final String MANIFEST_FILE = "manifest.properties";
+	private static final String FRAGMENTS_DIRECTORY = "types";
+	private static final String FRAGMENTS_SUFFIX = ".fragments";
+
+	private final Path directory;
+	private final String settings;
+	private final AsciidocIncludes includes;
+	private final Properties previous = new Properties();
+	private final Map<String, Unit> units = new LinkedHashMap<>();
+	private final Map<Element, Unit> unitsByElement = new HashMap<>();
+
+	private IncrementalManifest(Path directory, String settings, AsciidocIncludes includes) {
+		this.directory = directory;
+		this.settings = settings;
+		this.includes = includes;
+	}
+
+	static IncrementalManifest disabled() {
+		return DISABLED;
+	}
+
+	/**
+	 * @param directory where the manifest and the fragments are kept.
+	 * @param settings identifies the conversion settings, e.g. the attributes passed to Asciidoctor.
+	 */
+	static IncrementalManifest load(Path directory, String settings) {
+		return load( directory, settings, AsciidocIncludes.NONE );
+	}
+
+	/**
+	 * @param includes the files the blocks include, a type changes whenever one of the files its blocks include does.
+	 */
+	static IncrementalManifest load(Path directory, String settings, AsciidocIncludes includes) {
+		IncrementalManifest manifest = new IncrementalManifest( directory, FORMAT_VERSION + ";" + settings, includes );
+		try ( InputStream in = Files.newInputStream( directory.resolve( MANIFEST_FILE ) ) ) {
+			manifest.previous.load( in );
+		}
+		catch (NoSuchFileException e) {
+			// the first run
+		}
+		catch (IOException e) {
+			// a manifest that cannot be read means converting everything again, nothing worse
+			manifest.previous.clear();
+		}
+		return manifest;
+	}
+
+	boolean isEnabled() {
+		return directory != null;
+	}
+
+	/**
+	 * Fingerprints the documented types and loads the fragments of the types that didn't change since the previous run.
+	 *
+	 * @param elements the documented elements, see {@link AsciidocPrerenderer#documentedElements(DocletEnvironment)}.
+	 * @param reused where the fragments of the unchanged types go.
+	 * @return the documented elements whose blocks still have to be converted, i.e. all of them when disabled.
+	 */
+	Set<Element> plan(DocTrees docTrees, Set<Element> elements, AsciidocSourceWriter writer, PrerenderedFragments reused) {
+		if ( !isEnabled() ) {
+			return elements;
+		}
+		for ( Element element : elements ) {
+			DocTree tag = AsciidocPrerenderer.asciidocTag( docTrees.getDocCommentTree( element ) );
+			if ( tag != null ) {
+				String name = unitName( element );
+				Unit unit = units.computeIfAbsent( name, Unit::new );
+				AsciidocSource source = writer.write( tag, element );
+				unit.add( element, tag, source, includes.fingerprint( source.text() ) );
+				unitsByElement.put( element, unit );
+			}
+		}
+
+		Set<Element> changed = new LinkedHashSet<>();
+		for ( Unit unit : units.values() ) {
+			unit.fingerprint = unit.fingerprint( settings );
+			if ( !unit.fingerprint.equals( previous.getProperty( unit.name ) ) || !unit.load( fragmentsFile( unit.name ) ) ) {
+				unit.changed = true;
+				changed.addAll( unit.tags.keySet() );
+			}
+			else {
+				for ( Map.Entry<Element, DocTree> entry : unit.tags.entrySet() ) {
+					reused.put( entry.getKey(), entry.getValue(), unit.html.get( key( entry.getKey() ) ) );
+				}
+				// the fragments are kept by the store from now on, which may have a limit on the memory it uses
+				unit.html.clear();
+			}
+			unit.sources.clear();
+		}
+		return changed;
+	}
+
+	int types() {
+		return units.size();
+	}
+
+	int changedTypes() {
+		int changed = 0;
+		for ( Unit unit : units.values() ) {
+			if ( unit.changed ) {
+				changed++;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Records the HTML the taglet produced for a block, if the block belongs to one of the changed types.
+	 * The fragments of a type are written out as soon as all of its blocks are recorded.
+	 */
+	void record(Element element, DocTree tag, String html) {
+		if ( !isEnabled() ) {
+			return;
+		}
+		Unit unit = unitsByElement.get( element );
+		// the tag is compared as well, so that a block inherited from some other comment isn't saved as the element's own
+		if ( unit == null || !unit.changed || unit.saved || unit.tags.get( element ) != tag ) {
+			return;
+		}
+		unit.html.put( key( element ), html );
+		if ( unit.html.size() == unit.tags.size() ) {
+			try {
+				CacheFiles.writeAtomically( fragmentsFile( unit.name ), unit.serialize() );
+				unit.saved = true;
+			}
+			catch (IOException e) {
+				// the type will simply be converted again by the next run
+			}
+			unit.html.clear();
+		}
+	}
+
+	/**
+	 * Writes the new manifest.
+	 * A changed type that didn't get all of its blocks recorded is left out, so that the next run converts it again.
+	 */
+	void save() {
+		if ( !isEnabled() ) {
+			return;
+		}
+		Properties manifest = new Properties();
+		try {
+			for ( Unit unit : units.values() ) {
+				if ( !unit.changed || unit.saved ) {
+					manifest.setProperty( unit.name, unit.fingerprint );
+				}
+				else {
+					Files.deleteIfExists( fragmentsFile( unit.name ) );
+				}
+			}
+			for ( String name : previous.stringPropertyNames() ) {
+				if ( !units.containsKey( name ) ) {
+					// removed types, or types without any block anymore
+					Files.deleteIfExists( fragmentsFile( name ) );
+				}
+			}
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			manifest.store( bytes, "Fingerprints of the documented types, see --asciidoc-incremental" );
+			CacheFiles.writeAtomically( directory.resolve( MANIFEST_FILE ), bytes.toByteArray() );
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException( "Unable to write the incremental manifest: " + directory, e );
+		}
+	}
+
+	private Path fragmentsFile(String unitName) {
+		return directory.resolve( FRAGMENTS_DIRECTORY ).resolve( CacheFiles.sha256( unitName ) + FRAGMENTS_SUFFIX );
+	}
+
+	/*
+	 * Members are tracked along with the type declaring them, nested types on their own.
+	 */
+	private static String unitName(Element element) {
+		if ( element instanceof TypeElement ) {
+			return "type:" + ( (TypeElement) element ).getQualifiedName();
+		}
+		if ( element instanceof PackageElement ) {
+			return "package:" + ( (PackageElement) element ).getQualifiedName();
+		}
+		if ( element instanceof ModuleElement ) {
+			return "module:" + ( (ModuleElement) element ).getQualifiedName();
+		}
+		return unitName( element.getEnclosingElement() );
+	}
+
+	/*
+	 * Identifies the element within its unit, methods and constructors have their parameter types in there.
+	 */
+	private static String key(Element element) {
+		return element.getKind() + ":" + element;
+	}
+
+	private static final class Unit {
+		private final String name;
+		private final Map<Element, DocTree> tags = new LinkedHashMap<>();
+		private final List<String> sources = new ArrayList<>();
+		private final Map<String, String> html = new LinkedHashMap<>();
+		private String fingerprint;
+		private boolean changed;
+		private boolean saved;
+
+		private Unit(String name) {
+			this.name = name;
+		}
+
+		private void add(Element element, DocTree tag, AsciidocSource source, String included) {
+			tags.put( element, tag );
+			sources.add( key( element ) );
+			sources.add( source.text() );
+			if ( !included.isEmpty() ) {
+				sources.add( "included=" + included );
+			}
+			for ( AsciidocSource.Link link : source.links() ) {
+				sources.add( link.href() );
+				sources.add( link.label() );
+			}
+		}
+
+		private String fingerprint(String settings) {
+			List<String> values = new ArrayList<>( sources.size() + 2 );
+			values.add( settings );
+			values.add( name );
+			values.addAll( sources );
+			return CacheFiles.sha256( values.toArray( new String[0] ) );
+		}
+
+		/**
+		 * @return {@code true} if the file has the fragments of all the blocks, for the current fingerprint.
+		 */
+		private boolean load(Path file) {
+			try ( DataInputStream in = new DataInputStream( new ByteArrayInputStream( Files.readAllBytes( file ) ) ) ) {
+				if ( !fingerprint.equals( in.readUTF() ) ) {
+					return false;
+				}
+				int count = in.readInt();
+				for ( int i = 0; i < count; i++ ) {
+					String key = in.readUTF();
+					byte[] bytes = new byte[in.readInt()];
+					in.readFully( bytes );
+					if ( html.put( key, new String( bytes, StandardCharsets.UTF_8 ) ) != null ) {
+						// never written by this class, no telling which of the fragments is the right one
+						html.clear();
+						return false;
+					}
+				}
+			}
+			catch (IOException e) {
+				// missing or truncated, the type is simply converted again
+				html.clear();
+				return false;
+			}
+			for ( Element element : tags.keySet() ) {
+				if ( !html.containsKey( key( element ) ) ) {
+					html.clear();
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private byte[] serialize() throws IOException {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try ( DataOutputStream out = new DataOutputStream( bytes ) ) {
+				out.writeUTF( fingerprint );
+				out.writeInt( html.size() );
+				for ( Map.Entry<String, String> entry : html.entrySet() ) {
+					byte[] content = entry.getValue().getBytes( StandardCharsets.UTF_8 );
+					out.writeUTF( entry.getKey() );
+					out.writeInt( content.length );
+					out.write( content );
+				}
+			}
+			return bytes.toByteArray();
+		}
+	}
+}
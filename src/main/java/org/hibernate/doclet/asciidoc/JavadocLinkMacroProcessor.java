@@ -1,6 +1,7 @@
 package org.hibernate.doclet.asciidoc;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.asciidoctor.ast.ContentNode;
@@ -10,10 +11,18 @@
 /**
  * We'll use this processor to replace "placeholders" generated from {@code {@link something} }, or if someone would
  * add them directly in the docs.
+ * <p>
+ * Placeholders are either {@code javadoc:<index>[]}, pointing to a link in the side table of the source
+ * being converted, or carry the link in their attributes: {@code javadoc:stub[ href='...', label='...']}.
+ * The {@code javadoc:<symbol>[]} macros are turned into the former while writing the source,
+ * so whatever symbol gets here is one that couldn't be resolved, and is rendered without a link:
+ * as its label if it has one, e.g. {@code javadoc:Unknown[the label]}, as code otherwise.
  */
 @Name("javadoc")
 public class JavadocLinkMacroProcessor extends InlineMacroProcessor {
 
+	private List<AsciidocSource.Link> links = List.of();
+
 	public JavadocLinkMacroProcessor() {
 	}
 
@@ -25,13 +34,47 @@ public JavadocLinkMacroProcessor(String macroName, Map<String, Object> config) {
 		super( macroName, config );
 	}
 
+	/**
+	 * Sets the side table of the source that is about to be converted.
+	 * As the conversion happens on the calling thread, a processor should not be shared by concurrent conversions.
+	 */
+	void links(List<AsciidocSource.Link> links) {
+		this.links = links;
+	}
+
 	@Override
 	public Object process(ContentNode parent, String target, Map<String, Object> attributes) {
-		String href = (String) attributes.get( "href" );
+		AsciidocSource.Link link = link( target );
+		// the attributes went through the special characters substitution already, unlike the side table:
+		String href = link == null ? (String) attributes.get( "href" ) : link.escapedHref();
+		String label = link == null ? (String) attributes.get( "label" ) : link.escapedLabel();
 
 		Map<String, Object> options = new HashMap<>();
+		if ( href == null ) {
+			Object text = link == null ? attributes.get( "1" ) : null;
+			if ( text instanceof String && !( (String) text ).isBlank() ) {
+				options.put( "type", ":unquoted" );
+				return createPhraseNode( parent, "quoted", (String) text, attributes, options );
+			}
+			options.put( "type", ":monospaced" );
+			return createPhraseNode( parent, "quoted", target, attributes, options );
+		}
 		options.put( "type", ":link" );
 		options.put( "target", href );
-		return createPhraseNode( parent, "anchor", (String) attributes.get( "label" ), attributes, options );
+		return createPhraseNode( parent, "anchor", label, attributes, options );
+	}
+
+	private AsciidocSource.Link link(String target) {
+		// Java identifiers cannot start with a digit, so a numeric target can only be an index into the side table:
+		if ( target.isEmpty() || !Character.isDigit( target.charAt( 0 ) ) ) {
+			return null;
+		}
+		try {
+			int index = Integer.parseInt( target );
+			return index < links.size() ? links.get( index ) : null;
+		}
+		catch (NumberFormatException e) {
+			return null;
+		}
 	}
 }
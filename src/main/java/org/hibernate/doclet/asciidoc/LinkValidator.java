@@ -0,0 +1,131 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.QualifiedNameable;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.DocumentationTool;
+import javax.tools.JavaFileManager;
+
+import jdk.javadoc.doclet.Reporter;
+
+/**
+ * Checks the relative links of the {@code @asciidoc} blocks against the pages, and the anchors within them,
+ * that the standard doclet actually generated.
+ * <p>
+ * The links are collected as they are produced, from the pre-render workers as well, along with the elements
+ * linking to them. Once the pages are written, each linked page is read once for the ids it has,
+ * and the broken links are reported all at once.
+ * The links to the docs of a {@code -link}/{@code -linkoffline} are not checked: they are only produced
+ * for the packages listed by the element list of those docs.
+ */
+final class LinkValidator {
+
+	private static final LinkValidator DISABLED = new LinkValidator( null );
+	private static final Pattern ID = Pattern.compile( "\\sid=\"([^\"]*)\"" );
+
+	// target -> the elements linking to it
+	private final Map<String, Set<Element>> links;
+
+	private LinkValidator(Map<String, Set<Element>> links) {
+		this.links = links;
+	}
+
+	static LinkValidator disabled() {
+		return DISABLED;
+	}
+
+	static LinkValidator create() {
+		return new LinkValidator( new ConcurrentHashMap<>() );
+	}
+
+	/**
+	 * @param element the element whose docs link to the target.
+	 * @param path the target of the link, relative to the docs root.
+	 */
+	void check(Element element, String path) {
+		if ( links == null ) {
+			return;
+		}
+		links.computeIfAbsent( path, p -> ConcurrentHashMap.newKeySet() ).add( element );
+	}
+
+	/**
+	 * @param fileManager where the pages were generated.
+	 */
+	void report(JavaFileManager fileManager, Reporter reporter) {
+		if ( links == null || links.isEmpty() ) {
+			return;
+		}
+		// page -> its ids, null for a page that wasn't generated
+		Map<String, Set<String>> pages = new HashMap<>();
+		Map<String, Set<Element>> broken = new TreeMap<>();
+		for ( Map.Entry<String, Set<Element>> link : links.entrySet() ) {
+			String path = link.getKey();
+			int hash = path.indexOf( '#' );
+			String page = hash < 0 ? path : path.substring( 0, hash );
+			String anchor = hash < 0 ? "" : URLDecoder.decode( path.substring( hash + 1 ), StandardCharsets.UTF_8 );
+			if ( !pages.containsKey( page ) ) {
+				pages.put( page, ids( fileManager, page ) );
+			}
+			Set<String> ids = pages.get( page );
+			if ( ids == null || !anchor.isEmpty() && !ids.contains( anchor ) ) {
+				broken.put( path, link.getValue() );
+			}
+		}
+		if ( broken.isEmpty() ) {
+			return;
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append( broken.size() ).append( " link target(s) of the @asciidoc blocks are not generated by this run:" );
+		for ( Map.Entry<String, Set<Element>> entry : broken.entrySet() ) {
+			Set<String> names = new TreeSet<>();
+			for ( Element element : entry.getValue() ) {
+				names.add( name( element ) );
+			}
+			sb.append( "\n  " ).append( entry.getKey() ).append( " linked from " ).append( String.join( ", ", names ) );
+		}
+		reporter.print( Diagnostic.Kind.WARNING, sb.toString() );
+	}
+
+	private static Set<String> ids(JavaFileManager fileManager, String page) {
+		CharSequence html;
+		try {
+			html = fileManager.getFileForOutput( DocumentationTool.Location.DOCUMENTATION_OUTPUT, "", page, null )
+					.getCharContent( true );
+		}
+		catch (IOException e) {
+			return null;
+		}
+		Set<String> ids = new HashSet<>();
+		Matcher matcher = ID.matcher( html );
+		while ( matcher.find() ) {
+			// e.g. id="&lt;init&gt;(int)"
+			ids.add( matcher.group( 1 )
+					.replace( "&lt;", "<" )
+					.replace( "&gt;", ">" )
+					.replace( "&quot;", "\"" )
+					.replace( "&amp;", "&" ) );
+		}
+		return ids;
+	}
+
+	private static String name(Element element) {
+		if ( element instanceof QualifiedNameable || !( element.getEnclosingElement() instanceof TypeElement ) ) {
+			return element.toString();
+		}
+		return element.getEnclosingElement() + "#" + element;
+	}
+}
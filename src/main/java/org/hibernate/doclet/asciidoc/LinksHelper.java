@@ -1,49 +1,105 @@
 package org.hibernate.doclet.asciidoc;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.ModuleElement;
 import javax.lang.model.element.Name;
 import javax.lang.model.element.PackageElement;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
 import javax.lang.model.util.Elements;
 
 public final class LinksHelper {
 
-	private static final String MODULE_PREFIX = "module:";
 	private static final String ELEMENT_LIST = "element-list";
 	private static final String PACKAGE_LIST = "package-list";
+	private static final String CONSTRUCTOR_ANCHOR = "%3Cinit%3E";
 
-	private final Map<String, String> links = new HashMap<>();
+	private static final String[] RELATIVE_PREFIXES = new String[16];
+
+	static {
+		RELATIVE_PREFIXES[0] = "";
+		StringBuilder sb = new StringBuilder();
+		for ( int i = 1; i < RELATIVE_PREFIXES.length; i++ ) {
+			RELATIVE_PREFIXES[i] = sb.append( "../" ).toString();
+		}
+	}
+
+	private PackageIndex links = PackageIndex.EMPTY;
+	// the same targets get linked over and over again, from all over the docs, hence the memoization:
+	private final Map<Element, Target> targets = new ConcurrentHashMap<>();
+	private final Map<Element, String> relativePrefixes = new ConcurrentHashMap<>();
 	private final Elements elements;
+	private final ElementListCache elementListCache;
+	private final DocletMetrics metrics;
+	private LinkValidator validator = LinkValidator.disabled();
 
 	public LinksHelper(Elements elements, List<String> links, Map<String, String> offlineLinks) {
+		this( elements, links, offlineLinks, ElementListCache.disabled( ElementListCache.DEFAULT_TIMEOUT ), 1,
+				DocletMetrics.disabled() );
+	}
+
+	/**
+	 * @param fetchThreads the max number of element lists fetched/read at the same time.
+	 */
+	LinksHelper(Elements elements, List<String> links, Map<String, String> offlineLinks,
+			ElementListCache elementListCache, int fetchThreads, DocletMetrics metrics) {
 		this.elements = elements;
+		this.elementListCache = elementListCache;
+		this.metrics = metrics;
+
+		List<Callable<PackageIndex>> lists = new ArrayList<>( links.size() + offlineLinks.size() );
 		for ( String link : links ) {
-			link( link );
+			lists.add( () -> readLink( link ) );
 		}
 		for ( Map.Entry<String, String> entry : offlineLinks.entrySet() ) {
-			offlineLink( entry.getKey(), entry.getValue() );
+			lists.add( () -> readOfflineLink( entry.getKey(), entry.getValue() ) );
+		}
+		// the lists are fetched concurrently, but merged in the order of the options,
+		// so that a package present in several lists still points to the same place as if they were read one by one:
+		for ( PackageIndex list : readAll( lists, fetchThreads ) ) {
+			this.links = this.links.and( list );
 		}
 	}
 
 	public void link(String link) {
+		links = links.and( readLink( link ) );
+		targets.clear();
+	}
+
+	public void offlineLink(String link, String path) {
+		links = links.and( readOfflineLink( link, path ) );
+		targets.clear();
+	}
+
+	private PackageIndex readLink(String link) {
 		try {
 			URL url = new URI( link ).resolve( ELEMENT_LIST ).toURL();
-			readElementList( url.openStream(), link );
+			return readElementList( () -> read( elementListCache.open( url ) ), url.toString(), link );
 		}
 		catch (URISyntaxException | MalformedURLException e) {
 			throw new RuntimeException( "Unable to read the element list from the base link: " + link, e );
@@ -51,7 +107,7 @@ public void link(String link) {
 		catch (IOException exc) {
 			try {
 				URL url = new URI( link ).resolve( PACKAGE_LIST ).toURL();
-				readElementList( url.openStream(), link );
+				return readElementList( () -> read( elementListCache.open( url ) ), url.toString(), link );
 			}
 			catch (URISyntaxException | IOException e) {
 				throw new RuntimeException( "Unable to read the package list from the base link: " + link, e );
@@ -59,18 +115,20 @@ public void link(String link) {
 		}
 	}
 
-	public void offlineLink(String link, String path) {
+	private PackageIndex readOfflineLink(String link, String path) {
 		Path p = Path.of( path );
 		if ( !p.toFile().exists() ) {
 			throw new RuntimeException( "Offline Javadoc path '" + path + "' does not exists." );
 		}
 
 		try {
-			readElementList( Files.newInputStream( p.resolve( ELEMENT_LIST ) ), link );
+			Path list = p.resolve( ELEMENT_LIST );
+			return readElementList( () -> map( list ), list.toString(), link );
 		}
 		catch (IOException e) {
 			try {
-				readElementList( Files.newInputStream( p.resolve( PACKAGE_LIST ) ), link );
+				Path list = p.resolve( PACKAGE_LIST );
+				return readElementList( () -> map( list ), list.toString(), link );
 			}
 			catch (IOException ex) {
 				throw new RuntimeException(
@@ -79,64 +137,255 @@ public void offlineLink(String link, String path) {
 		}
 	}
 
-	private void readElementList(InputStream input, String path) throws IOException {
-		path = path.endsWith( "/" ) ? path : path + "/";
-		try ( BufferedReader in = new BufferedReader( new InputStreamReader( input ) ) ) {
-			String element = null;
-			String moduleName = null;
-			while ( ( element = in.readLine() ) != null ) {
-				if ( element.length() > 0 ) {
-					if ( element.startsWith( MODULE_PREFIX ) ) {
-						moduleName = element.replace( MODULE_PREFIX, "" );
-					}
-					links.put( element, path + ( moduleName == null ? "" : moduleName + "/" ) );
-				}
+	private static List<PackageIndex> readAll(List<Callable<PackageIndex>> lists, int threads) {
+		List<PackageIndex> result = new ArrayList<>( lists.size() );
+		if ( lists.size() < 2 || threads < 2 ) {
+			for ( Callable<PackageIndex> list : lists ) {
+				result.add( call( list ) );
+			}
+			return result;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool( Math.min( threads, lists.size() ), runnable -> {
+			Thread thread = new Thread( runnable, "element-list-fetch" );
+			thread.setDaemon( true );
+			return thread;
+		} );
+		try {
+			List<Future<PackageIndex>> futures = new ArrayList<>( lists.size() );
+			for ( Callable<PackageIndex> list : lists ) {
+				futures.add( executor.submit( () -> call( list ) ) );
 			}
+			for ( Future<PackageIndex> future : futures ) {
+				result.add( future.get() );
+			}
+			return result;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException( "Interrupted while reading the element lists.", e );
+		}
+		catch (ExecutionException e) {
+			if ( e.getCause() instanceof RuntimeException ) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException( "Unable to read the element lists.", e.getCause() );
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static PackageIndex call(Callable<PackageIndex> list) {
+		try {
+			return list.call();
+		}
+		catch (RuntimeException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new RuntimeException( e );
+		}
+	}
+
+	/*
+	 * The list is read fully before parsing it, which also tells how long getting it took from how long parsing it did:
+	 */
+	private PackageIndex readElementList(ElementListSource source, String location, String link)
+			throws IOException {
+		long start = metrics.start();
+		ByteBuffer content = source.read();
+		long fetched = metrics.start();
+		PackageIndex list = readElementList( content, link );
+		metrics.elementList( link, location, list.size(), fetched - start, metrics.start() - fetched );
+		return list;
+	}
+
+	static PackageIndex readElementList(ByteBuffer content, String link) {
+		return PackageIndex.read( content, link );
+	}
+
+	private static ByteBuffer read(InputStream input) throws IOException {
+		try ( InputStream in = input ) {
+			return ByteBuffer.wrap( in.readAllBytes() );
+		}
+	}
+
+	private static ByteBuffer map(Path file) throws IOException {
+		try ( FileChannel channel = FileChannel.open( file ) ) {
+			return channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
 		}
 	}
 
+	/**
+	 * @param validator checks the relative links against the pages being generated, as they are produced.
+	 */
+	void validator(LinkValidator validator) {
+		this.validator = validator;
+	}
+
 	public String javadocLink(Element referenceElement, Element element) {
-		return links.getOrDefault(
-				elements.getPackageOf( referenceElement ).toString(),
-				relativeLink( element )
-		) + link( referenceElement );
+		long start = metrics.start();
+		Target target = targets.computeIfAbsent( referenceElement, this::target );
+		String href;
+		if ( target.href != null ) {
+			href = target.href;
+		}
+		else {
+			href = relativeLink( element ) + target.path;
+			validator.check( element, target.path );
+		}
+		metrics.link( target.href != null, start );
+		return href;
 	}
 
+	/**
+	 * @return the path from the page documenting the element to the docs root,
+	 * i.e. one {@code ../} per segment of the package name.
+	 */
 	public String relativeLink(Element element) {
-		String[] locationBase = enclosingType( element ).split( "\\." );
+		PackageElement pkg = element instanceof ModuleElement ? null : elements.getPackageOf( element );
+		if ( pkg == null || pkg.isUnnamed() ) {
+			return relativePrefix( 0 );
+		}
+		return relativePrefixes.computeIfAbsent( pkg, p -> relativePrefix( depth( pkg.getQualifiedName() ) + 1 ) );
+	}
 
-		return IntStream.range( 1, locationBase.length ).mapToObj( i -> ".." )
-				.collect( Collectors.joining( "/", "", "/" ) );
+	private Target target(Element referenceElement) {
+		String path = path( referenceElement );
+		PackageElement pkg = referenceElement instanceof ModuleElement ? null : elements.getPackageOf( referenceElement );
+		String base = pkg == null ? null : links.base( pkg.getQualifiedName().toString() );
+		return new Target( base == null ? null : base + path, path );
 	}
 
-	private String link(Element referenceElement) {
-		String result = "";
-		Element element = referenceElement;
+	/**
+	 * @return the path of the page, and the anchor, of the element relative to the docs root, e.g.
+	 * {@code org/example/Outer.Inner.html#method(java.util.List,T...)}.
+	 */
+	String path(Element referenceElement) {
+		if ( referenceElement instanceof ModuleElement ) {
+			return ( (ModuleElement) referenceElement ).getQualifiedName() + "/module-summary.html#";
+		}
+		PackageElement pkg = elements.getPackageOf( referenceElement );
+		Name base = pkg.getQualifiedName();
+		StringBuilder sb = new StringBuilder( base.length() + 64 );
+		sb.append( base );
+		for ( int i = 0; i < sb.length(); i++ ) {
+			if ( sb.charAt( i ) == '.' ) {
+				sb.setCharAt( i, '/' );
+			}
+		}
+		if ( sb.length() > 0 ) {
+			sb.append( '/' );
+		}
+		if ( referenceElement instanceof PackageElement ) {
+			return sb.append( "package-summary.html#" ).toString();
+		}
 
+		Element element = referenceElement;
 		while ( !( element instanceof TypeElement ) ) {
-			result = element.toString() + result;
 			element = element.getEnclosingElement();
 		}
-		String fileName = "";
-		PackageElement pkg = elements.getPackageOf( referenceElement );
-		Element iter = element;
-		while ( !pkg.equals( iter ) ) {
-			fileName = iter.getSimpleName() + "." + fileName;
-			iter = iter.getEnclosingElement();
+		appendFileName( sb, element, pkg );
+		sb.append( "html#" );
+		if ( referenceElement instanceof ExecutableElement ) {
+			// the anchors of the constructors are named <init>(...), just like in the class files
+			sb.append( referenceElement.getKind() == ElementKind.CONSTRUCTOR
+					? CONSTRUCTOR_ANCHOR
+					: referenceElement.getSimpleName() );
+			appendParameters( sb, (ExecutableElement) referenceElement );
+		}
+		else if ( referenceElement != element ) {
+			sb.append( referenceElement.getSimpleName() );
+		}
+		return sb.toString();
+	}
+
+	/*
+	 * The parameter types the way the standard doclet writes them into the anchors: qualified names without
+	 * the type arguments, type variables by name and varargs with an ellipsis, e.g. (java.util.List,T[],int...).
+	 */
+	private static void appendParameters(StringBuilder sb, ExecutableElement executable) {
+		List<? extends VariableElement> parameters = executable.getParameters();
+		sb.append( '(' );
+		for ( int i = 0; i < parameters.size(); i++ ) {
+			if ( i > 0 ) {
+				sb.append( ',' );
+			}
+			TypeMirror type = parameters.get( i ).asType();
+			if ( executable.isVarArgs() && i == parameters.size() - 1 ) {
+				appendType( sb, ( (ArrayType) type ).getComponentType() );
+				sb.append( "..." );
+			}
+			else {
+				appendType( sb, type );
+			}
+		}
+		sb.append( ')' );
+	}
+
+	private static void appendType(StringBuilder sb, TypeMirror type) {
+		switch ( type.getKind() ) {
+			case ARRAY:
+				appendType( sb, ( (ArrayType) type ).getComponentType() );
+				sb.append( "[]" );
+				break;
+			case DECLARED:
+				sb.append( ( (TypeElement) ( (DeclaredType) type ).asElement() ).getQualifiedName() );
+				break;
+			case TYPEVAR:
+				sb.append( ( (TypeVariable) type ).asElement().getSimpleName() );
+				break;
+			default:
+				// primitives, by their kind rather than the string of the type, which has the type annotations
+				sb.append( type.getKind().isPrimitive() ? type.getKind().name().toLowerCase( Locale.ROOT ) : type );
 		}
-		String base = pkg.getQualifiedName().toString();
-		Name typeQualifiedName = ( (TypeElement) element ).getQualifiedName();
+	}
 
-		return base.isEmpty() ? "/" : typeQualifiedName.toString().substring( 0, base.length() + 1 ).replace( '.', '/' )
-				+ fileName + "html#"
-				+ result;
+	/*
+	 * Nested types have their own files named after all the enclosing types, e.g. `Outer.Inner.html`:
+	 */
+	private static void appendFileName(StringBuilder sb, Element type, PackageElement pkg) {
+		if ( !pkg.equals( type.getEnclosingElement() ) ) {
+			appendFileName( sb, type.getEnclosingElement(), pkg );
+		}
+		sb.append( type.getSimpleName() ).append( '.' );
 	}
 
-	private String enclosingType(Element element) {
-		while ( !( element == null || element instanceof TypeElement ) ) {
-			element = element.getEnclosingElement();
+	private static int depth(Name qualifiedName) {
+		String name = qualifiedName.toString();
+		int depth = 0;
+		for ( int i = name.indexOf( '.' ); i >= 0; i = name.indexOf( '.', i + 1 ) ) {
+			depth++;
+		}
+		return depth;
+	}
+
+	private static String relativePrefix(int depth) {
+		if ( depth < RELATIVE_PREFIXES.length ) {
+			return RELATIVE_PREFIXES[depth];
+		}
+		StringBuilder sb = new StringBuilder( depth * 3 );
+		for ( int i = 0; i < depth; i++ ) {
+			sb.append( "../" );
+		}
+		return sb.toString();
+	}
+
+	private interface ElementListSource {
+		ByteBuffer read() throws IOException;
+	}
+
+	private static final class Target {
+		// full href, when the target is in one of the linked external docs
+		private final String href;
+		// path of the target relative to the docs root
+		private final String path;
+
+		private Target(String href, String path) {
+			this.href = href;
+			this.path = path;
 		}
-		return element == null ? "" : element.toString();
 	}
 
 }
@@ -0,0 +1,211 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the package names of the {@code -link}/{@code -linkoffline} element lists to the base URL of the docs of each package.
+ * <p>
+ * A list has one base URL, or one per module, for thousands of packages, so the base URLs are kept once
+ * and referenced by id. The package names are kept in a sorted array, looked up with a binary search,
+ * which saves the entry objects of a hash map along with a concatenated URL per package.
+ */
+final class PackageIndex {
+
+	static final PackageIndex EMPTY = new PackageIndex( new String[0], new int[0], new String[0] );
+
+	private static final String MODULE_PREFIX = "module:";
+
+	// sorted
+	private final String[] names;
+	// index into the bases, for each of the names
+	private final int[] baseIds;
+	private final String[] bases;
+
+	private PackageIndex(String[] names, int[] baseIds, String[] bases) {
+		this.names = names;
+		this.baseIds = baseIds;
+		this.bases = bases;
+	}
+
+	/**
+	 * Parses the content of an {@code element-list} or a {@code package-list}:
+	 * one package per line, preceded by a {@code module:<name>} line for the packages of each module.
+	 *
+	 * @param link the base URL of the docs the list belongs to.
+	 */
+	static PackageIndex read(ByteBuffer content, String link) {
+		String path = link.endsWith( "/" ) ? link : link + "/";
+		byte[] bytes;
+		int offset;
+		int end;
+		if ( content.hasArray() ) {
+			bytes = content.array();
+			offset = content.arrayOffset() + content.position();
+			end = content.arrayOffset() + content.limit();
+		}
+		else {
+			// e.g. a mapped file, a single bulk copy is still cheaper than going through the buffer byte by byte
+			bytes = new byte[content.remaining()];
+			content.get( bytes );
+			offset = 0;
+			end = bytes.length;
+		}
+
+		Builder builder = new Builder();
+		int base = builder.base( path );
+		int start = offset;
+		for ( int i = offset; i <= end; i++ ) {
+			if ( i < end && bytes[i] != '\n' && bytes[i] != '\r' ) {
+				continue;
+			}
+			if ( i > start ) {
+				String element = decode( bytes, start, i );
+				if ( element.startsWith( MODULE_PREFIX ) ) {
+					// module lines are not packages, they just switch the base URL for the packages that follow:
+					base = builder.base( path + element.substring( MODULE_PREFIX.length() ) + "/" );
+				}
+				else {
+					builder.add( element, base );
+				}
+			}
+			start = i + 1;
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @return the base URL of the docs of the package, or {@code null} if the package is not in the index.
+	 */
+	String base(String packageName) {
+		int index = Arrays.binarySearch( names, packageName );
+		return index < 0 ? null : bases[baseIds[index]];
+	}
+
+	int size() {
+		return names.length;
+	}
+
+	/**
+	 * @return an index with the packages of both, the base URLs of {@code other} winning for the packages present in both.
+	 */
+	PackageIndex and(PackageIndex other) {
+		if ( other.names.length == 0 ) {
+			return this;
+		}
+		if ( names.length == 0 ) {
+			return other;
+		}
+		Builder builder = new Builder();
+		int[] ids = builder.bases( bases );
+		int[] otherIds = builder.bases( other.bases );
+		int i = 0;
+		int j = 0;
+		while ( i < names.length || j < other.names.length ) {
+			int comparison = i == names.length ? 1 : j == other.names.length ? -1 : names[i].compareTo( other.names[j] );
+			if ( comparison < 0 ) {
+				builder.add( names[i], ids[baseIds[i]] );
+				i++;
+			}
+			else {
+				if ( comparison == 0 ) {
+					i++;
+				}
+				builder.add( other.names[j], otherIds[other.baseIds[j]] );
+				j++;
+			}
+		}
+		return builder.build();
+	}
+
+	private static String decode(byte[] bytes, int start, int end) {
+		for ( int i = start; i < end; i++ ) {
+			if ( bytes[i] < 0 ) {
+				return new String( bytes, start, end - start, StandardCharsets.UTF_8 );
+			}
+		}
+		// the usual case, plain ASCII package names
+		return new String( bytes, start, end - start, StandardCharsets.ISO_8859_1 );
+	}
+
+	private static final class Builder {
+		private final List<String> bases = new ArrayList<>();
+		private final Map<String, Integer> baseIds = new HashMap<>();
+		private final List<String> names = new ArrayList<>();
+		private int[] ids = new int[256];
+
+		private int base(String base) {
+			return baseIds.computeIfAbsent( base, b -> {
+				bases.add( b );
+				return bases.size() - 1;
+			} );
+		}
+
+		private int[] bases(String[] bases) {
+			int[] ids = new int[bases.length];
+			for ( int i = 0; i < bases.length; i++ ) {
+				ids[i] = base( bases[i] );
+			}
+			return ids;
+		}
+
+		private void add(String name, int base) {
+			if ( names.size() == ids.length ) {
+				ids = Arrays.copyOf( ids, ids.length * 2 );
+			}
+			ids[names.size()] = base;
+			names.add( name );
+		}
+
+		private PackageIndex build() {
+			String[] sorted = names.toArray( new String[0] );
+			String[] bases = this.bases.toArray( new String[0] );
+			if ( isStrictlySorted( sorted ) ) {
+				// the usual case, the javadoc tool writes the lists sorted already
+				return new PackageIndex( sorted, Arrays.copyOf( ids, sorted.length ), bases );
+			}
+			Entry[] entries = new Entry[sorted.length];
+			for ( int i = 0; i < entries.length; i++ ) {
+				entries[i] = new Entry( sorted[i], ids[i] );
+			}
+			// a stable sort, so that the last occurrence of a package is the one that's kept, just like with a map:
+			Arrays.sort( entries, Comparator.comparing( e -> e.name ) );
+			int[] sortedIds = new int[entries.length];
+			int size = 0;
+			for ( Entry entry : entries ) {
+				if ( size > 0 && sorted[size - 1].equals( entry.name ) ) {
+					size--;
+				}
+				sorted[size] = entry.name;
+				sortedIds[size] = entry.id;
+				size++;
+			}
+			return new PackageIndex( Arrays.copyOf( sorted, size ), Arrays.copyOf( sortedIds, size ), bases );
+		}
+
+		private static final class Entry {
+			private final String name;
+			private final int id;
+
+			private Entry(String name, int id) {
+				this.name = name;
+				this.id = id;
+			}
+		}
+
+		private static boolean isStrictlySorted(String[] names) {
+			for ( int i = 1; i < names.length; i++ ) {
+				if ( names[i - 1].compareTo( names[i] ) >= 0 ) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
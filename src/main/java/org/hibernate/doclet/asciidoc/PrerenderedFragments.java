@@ -0,0 +1,46 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.util.HashMap;
+import java.util.Map;
+import javax.lang.model.element.Element;
+
+import com.sun.source.doctree.DocTree;
+
+/**
+ * HTML of the {@code @asciidoc} blocks converted ahead of time, keyed by the element the block belongs to.
+ * <p>
+ * The HTML itself is kept by a {@link FragmentStore}, which may spill it to disk.
+ * Fragments are added by the pre-render workers as they are converted, hence the synchronization.
+ */
+final class PrerenderedFragments implements AutoCloseable {
+
+	// never added to, the taglet's default when not running within the Asciidoclet
+	static final PrerenderedFragments EMPTY = new PrerenderedFragments( FragmentStore.inMemory() );
+
+	private final Map<Element, DocTree> tags = new HashMap<>();
+	private final FragmentStore store;
+
+	PrerenderedFragments(FragmentStore store) {
+		this.store = store;
+	}
+
+	synchronized void put(Element element, DocTree tag, String html) {
+		tags.put( element, tag );
+		store.put( element, html );
+	}
+
+	/**
+	 * @return the converted HTML or {@code null} if the block wasn't pre-rendered.
+	 */
+	synchronized String html(DocTree tag, Element element) {
+		// the tag is compared as well, just to be sure we are not serving a block from some other comment
+		// in case the doclet decides to render tags that the element doesn't own.
+		return tags.get( element ) != tag ? null : store.get( element );
+	}
+
+	@Override
+	public synchronized void close() {
+		tags.clear();
+		store.close();
+	}
+}
@@ -0,0 +1,92 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.sun.source.doctree.DocTree;
+
+/**
+ * HTML of the {@code @asciidoc} blocks the taglet rendered during the run, for the blocks the standard doclet asks for
+ * more than once, e.g. the comment of an interface method copied to every implementation that doesn't have its own.
+ * <p>
+ * A block is keyed by the identity of its tag, i.e. of the comment it comes from, and by the relative path
+ * to the root of the docs of the page it is rendered on, the only part of the HTML that depends on where it ends up.
+ * Only the most recently used blocks are kept, up to {@code maxSize} bytes of HTML.
+ * Not thread-safe, just like the taglet.
+ */
+final class RenderedBlocks {
+
+	static final long DEFAULT_MAX_SIZE = 16L * 1024 * 1024;
+
+	private static final RenderedBlocks DISABLED = new RenderedBlocks( 0 );
+
+	private final long maxSize;
+	private final Map<Key, String> html = new LinkedHashMap<>( 64, 0.75f, true );
+	private long size;
+
+	RenderedBlocks(long maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @return blocks that keep nothing, so that each block is converted every time it is asked for.
+	 */
+	static RenderedBlocks disabled() {
+		return DISABLED;
+	}
+
+	/**
+	 * @return the HTML of the block, or {@code null} if it wasn't rendered for the same relative path yet.
+	 */
+	String get(DocTree tag, String relativePath) {
+		if ( maxSize <= 0 ) {
+			return null;
+		}
+		return html.get( new Key( tag, relativePath ) );
+	}
+
+	void put(DocTree tag, String relativePath, String html) {
+		long htmlSize = size( html );
+		if ( maxSize <= 0 || htmlSize > maxSize ) {
+			return;
+		}
+		String previous = this.html.put( new Key( tag, relativePath ), html );
+		size += htmlSize - ( previous == null ? 0 : size( previous ) );
+		for ( Iterator<String> eldest = this.html.values().iterator(); size > maxSize; ) {
+			size -= size( eldest.next() );
+			eldest.remove();
+		}
+	}
+
+	/**
+	 * @return the size of the HTML in bytes, two per char at most.
+	 */
+	private static long size(String html) {
+		return html.length() * 2L;
+	}
+
+	private static final class Key {
+		private final DocTree tag;
+		private final String relativePath;
+
+		private Key(DocTree tag, String relativePath) {
+			this.tag = tag;
+			this.relativePath = relativePath;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if ( !( o instanceof Key ) ) {
+				return false;
+			}
+			Key other = (Key) o;
+			return tag == other.tag && relativePath.equals( other.relativePath );
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode( tag ) + relativePath.hashCode();
+		}
+	}
+}
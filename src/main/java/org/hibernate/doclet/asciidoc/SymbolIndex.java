@@ -0,0 +1,283 @@
+package org.hibernate.doclet.asciidoc;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+import com.sun.source.tree.ImportTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.Trees;
+import jdk.javadoc.doclet.DocletEnvironment;
+
+/**
+ * Resolves the symbols of the {@code javadoc:<symbol>[]} macros written directly into the Asciidoc markup,
+ * e.g. {@code javadoc:InnerClass#CONSTANT[]}, without going through a {@code {@link}} tag.
+ * <p>
+ * The symbols are the same as the references of a {@code {@link}}: a type by its simple or qualified name,
+ * optionally followed by {@code #member}, where methods and constructors may have their parameter types,
+ * simple or qualified, in parentheses. A symbol starting with {@code #} points to a member of the type being documented.
+ * <p>
+ * A simple name is first looked up the way the compiler would from the element being documented: among the types
+ * nested in its enclosing types, then its single-type imports, its package and its on-demand imports.
+ * Only then does it go to the included types, which are indexed once, ahead of the conversion, so resolving a symbol
+ * is a couple of map lookups. A qualified name that isn't indexed, e.g. a JDK type, is looked up through
+ * {@link Elements}, as is a simple name from {@code java.lang}. Simple names shared by several included types
+ * are ambiguous, unless resolved within the scope of the element. An index is not thread-safe.
+ */
+final class SymbolIndex {
+
+	static final SymbolIndex EMPTY = new SymbolIndex( null, null, null );
+
+	private final Elements elements;
+	private final Types types;
+	private final Trees trees;
+	private final Map<String, TypeElement> typesByName = new HashMap<>();
+	private final Set<String> ambiguous = new HashSet<>();
+	private final Map<TypeElement, Map<String, Element>> members = new HashMap<>();
+	// enclosing type -> simple name -> the type it stands for within that type, if any
+	private final Map<TypeElement, Map<String, Optional<TypeElement>>> scopes = new HashMap<>();
+
+	private SymbolIndex(Elements elements, Types types, Trees trees) {
+		this.elements = elements;
+		this.types = types;
+		this.trees = trees;
+	}
+
+	static SymbolIndex create(DocletEnvironment environment) {
+		return create( environment, AsciidocPrerenderer.documentedElements( environment ) );
+	}
+
+	/**
+	 * @param documented the documented elements, see {@link AsciidocPrerenderer#documentedElements(DocletEnvironment)}.
+	 */
+	static SymbolIndex create(DocletEnvironment environment, Set<Element> documented) {
+		SymbolIndex index = new SymbolIndex(
+				environment.getElementUtils(), environment.getTypeUtils(), environment.getDocTrees() );
+		for ( Element element : documented ) {
+			if ( element instanceof TypeElement ) {
+				index.addType( (TypeElement) element );
+			}
+			else if ( element.getEnclosingElement() instanceof TypeElement ) {
+				index.addMember(
+						index.members.computeIfAbsent( (TypeElement) element.getEnclosingElement(), t -> new HashMap<>() ),
+						element
+				);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * @param context the element being documented, for the symbols relative to its type.
+	 * @return the element the symbol points to, or {@code null} if it cannot be resolved.
+	 */
+	Element resolve(String symbol, Element context) {
+		if ( elements == null ) {
+			return null;
+		}
+		int hash = symbol.indexOf( '#' );
+		String typeName = hash < 0 ? symbol : symbol.substring( 0, hash );
+		TypeElement type = typeName.isEmpty() ? enclosingType( context ) : type( typeName, enclosingType( context ) );
+		if ( type == null || hash < 0 ) {
+			return type;
+		}
+		return members( type ).get( normalize( symbol.substring( hash + 1 ) ) );
+	}
+
+	boolean isAmbiguous(String symbol) {
+		int hash = symbol.indexOf( '#' );
+		return ambiguous.contains( hash < 0 ? symbol : symbol.substring( 0, hash ) );
+	}
+
+	private TypeElement type(String name, TypeElement scope) {
+		if ( scope != null ) {
+			int dot = name.indexOf( '.' );
+			TypeElement type = scoped( dot < 0 ? name : name.substring( 0, dot ), scope );
+			// e.g. Outer.Inner, where Outer is in scope
+			while ( type != null && dot >= 0 ) {
+				int next = name.indexOf( '.', dot + 1 );
+				type = nested( type, next < 0 ? name.substring( dot + 1 ) : name.substring( dot + 1, next ) );
+				dot = next;
+			}
+			if ( type != null ) {
+				return type;
+			}
+		}
+		TypeElement type = typesByName.get( name );
+		if ( type != null || ambiguous.contains( name ) ) {
+			return type;
+		}
+		type = elements.getTypeElement( name.indexOf( '.' ) < 0 ? "java.lang." + name : name );
+		if ( type != null ) {
+			typesByName.put( name, type );
+		}
+		return type;
+	}
+
+	private TypeElement scoped(String simpleName, TypeElement scope) {
+		return scopes.computeIfAbsent( scope, s -> new HashMap<>() )
+				.computeIfAbsent( simpleName, n -> Optional.ofNullable( lookUp( n, scope ) ) )
+				.orElse( null );
+	}
+
+	/*
+	 * Same order as the compiler: member types, single-type imports, the package, on-demand imports.
+	 */
+	private TypeElement lookUp(String simpleName, TypeElement scope) {
+		for ( Element e = scope; e instanceof TypeElement; e = e.getEnclosingElement() ) {
+			if ( e.getSimpleName().contentEquals( simpleName ) ) {
+				return (TypeElement) e;
+			}
+			TypeElement type = nested( (TypeElement) e, simpleName );
+			if ( type != null ) {
+				return type;
+			}
+		}
+		TreePath path = trees.getPath( scope );
+		List<? extends ImportTree> imports = path == null ? List.of() : path.getCompilationUnit().getImports();
+		for ( ImportTree importTree : imports ) {
+			if ( !importTree.isStatic() && importTree.getQualifiedIdentifier() instanceof MemberSelectTree ) {
+				MemberSelectTree imported = (MemberSelectTree) importTree.getQualifiedIdentifier();
+				if ( imported.getIdentifier().contentEquals( simpleName ) ) {
+					TypeElement type = elements.getTypeElement( imported.toString() );
+					if ( type != null ) {
+						return type;
+					}
+				}
+			}
+		}
+		PackageElement pkg = elements.getPackageOf( scope );
+		TypeElement type = elements.getTypeElement(
+				pkg.isUnnamed() ? simpleName : pkg.getQualifiedName() + "." + simpleName );
+		if ( type != null ) {
+			return type;
+		}
+		for ( ImportTree importTree : imports ) {
+			if ( !importTree.isStatic() && importTree.getQualifiedIdentifier() instanceof MemberSelectTree ) {
+				MemberSelectTree imported = (MemberSelectTree) importTree.getQualifiedIdentifier();
+				if ( imported.getIdentifier().contentEquals( "*" ) ) {
+					// either a package or a type, whose nested types are imported
+					type = elements.getTypeElement( imported.getExpression() + "." + simpleName );
+					if ( type != null ) {
+						return type;
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	private static TypeElement nested(TypeElement type, String simpleName) {
+		for ( Element member : type.getEnclosedElements() ) {
+			if ( member instanceof TypeElement && member.getSimpleName().contentEquals( simpleName ) ) {
+				return (TypeElement) member;
+			}
+		}
+		return null;
+	}
+
+	private void addType(TypeElement type) {
+		// only the included members of an included type, the others don't have docs to link to
+		members.computeIfAbsent( type, t -> new HashMap<>() );
+		typesByName.put( type.getQualifiedName().toString(), type );
+		addName( type.getSimpleName().toString(), type );
+		// nested types by their name within the package as well, e.g. Outer.Inner
+		if ( !( type.getEnclosingElement() instanceof PackageElement ) ) {
+			PackageElement pkg = elements.getPackageOf( type );
+			String qualifiedName = type.getQualifiedName().toString();
+			addName( pkg.isUnnamed() ? qualifiedName : qualifiedName.substring( pkg.getQualifiedName().length() + 1 ), type );
+		}
+	}
+
+	private void addName(String name, TypeElement type) {
+		if ( ambiguous.contains( name ) ) {
+			return;
+		}
+		TypeElement previous = typesByName.putIfAbsent( name, type );
+		if ( previous != null && !previous.equals( type ) ) {
+			typesByName.remove( name );
+			ambiguous.add( name );
+		}
+	}
+
+	/*
+	 * The members of the types that were not indexed upfront are indexed the first time they are needed.
+	 */
+	private Map<String, Element> members(TypeElement type) {
+		Map<String, Element> typeMembers = members.get( type );
+		if ( typeMembers == null ) {
+			typeMembers = new HashMap<>();
+			members.put( type, typeMembers );
+			for ( Element member : type.getEnclosedElements() ) {
+				if ( !( member instanceof TypeElement ) ) {
+					addMember( typeMembers, member );
+				}
+			}
+		}
+		return typeMembers;
+	}
+
+	private void addMember(Map<String, Element> typeMembers, Element member) {
+		if ( member instanceof VariableElement ) {
+			typeMembers.putIfAbsent( member.getSimpleName().toString(), member );
+		}
+		else if ( member instanceof ExecutableElement ) {
+			String name = member.getKind() == ElementKind.CONSTRUCTOR
+					? member.getEnclosingElement().getSimpleName().toString()
+					: member.getSimpleName().toString();
+			List<? extends VariableElement> parameters = ( (ExecutableElement) member ).getParameters();
+			StringBuilder qualified = new StringBuilder( name ).append( '(' );
+			StringBuilder simple = new StringBuilder( name ).append( '(' );
+			for ( int i = 0; i < parameters.size(); i++ ) {
+				String parameter = types.erasure( parameters.get( i ).asType() ).toString();
+				if ( i > 0 ) {
+					qualified.append( ',' );
+					simple.append( ',' );
+				}
+				qualified.append( parameter );
+				simple.append( parameter.substring( parameter.lastIndexOf( '.' ) + 1 ) );
+			}
+			// the first overload is the one a reference without the parameters points to, just like with javadoc:
+			typeMembers.putIfAbsent( name, member );
+			typeMembers.putIfAbsent( qualified.append( ')' ).toString(), member );
+			typeMembers.putIfAbsent( simple.append( ')' ).toString(), member );
+		}
+	}
+
+	/*
+	 * The keys have no whitespace in them and varargs are written as arrays.
+	 */
+	private static String normalize(String member) {
+		StringBuilder sb = new StringBuilder( member.length() );
+		for ( int i = 0; i < member.length(); i++ ) {
+			char c = member.charAt( i );
+			if ( c == '.' && member.startsWith( "...", i ) ) {
+				sb.append( "[]" );
+				i += 2;
+			}
+			else if ( !Character.isWhitespace( c ) ) {
+				sb.append( c );
+			}
+		}
+		return sb.toString();
+	}
+
+	private static TypeElement enclosingType(Element element) {
+		while ( !( element == null || element instanceof TypeElement ) ) {
+			element = element.getEnclosingElement();
+		}
+		return (TypeElement) element;
+	}
+}
@@ -0,0 +1,25 @@
+# Replaces the built-in CodeRay adapter with one that remembers what it highlighted,
+# keyed by the language, the highlighting options and the code itself,
+# so that a snippet repeated across many members is only highlighted once per Asciidoctor runtime.
+# Looking the built-in adapter up through the factory makes Asciidoctor load it the way it normally would.
+class HibernateDocletCachedCodeRayAdapter < (Asciidoctor::SyntaxHighlighter.for 'coderay')
+  register_for 'coderay'
+
+  MAX_ENTRIES = 1000
+
+  @@highlighted = {}
+
+  def highlight node, source, lang, opts
+    key = [lang, opts[:css_mode], opts[:number_lines], opts[:start_line_number], opts[:highlight_lines], !!opts[:callouts], source.dup.freeze]
+    if (result = @@highlighted.delete key)
+      # the built-in adapter only knows it needs its stylesheet once it highlights something:
+      @requires_stylesheet = true if opts[:css_mode] == :class
+    else
+      result = super
+      @@highlighted.shift if @@highlighted.size >= MAX_ENTRIES
+    end
+    # re-inserting the entry keeps the most recently used ones at the end, so the oldest are the ones to go:
+    @@highlighted[key] = result
+    ::Array === result ? [result[0].dup, result[1]] : result.dup
+  end
+end
@@ -0,0 +1,117 @@
+package training;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @asciidoc
+ * Source the {@code AsciidocTraining} runs the doclet on, with the kinds of blocks a typical codebase has:
+ * plain paragraphs with *strong*, _emphasis_ and `code`, {@link Samples#convert(String, int) links},
+ * lists, tables, admonitions and highlighted sources.
+ *
+ * == A section
+ *
+ * :attribute: with a value
+ *
+ * Using the {attribute} defined above, along with a footnote.footnote:[The footnote.]
+ */
+public class Samples {
+
+	/**
+	 * @asciidoc
+	 * A *small* block with some `inline code` and a link to {@link #names()}.
+	 */
+	public static final String CONSTANT = "constant";
+
+	/**
+	 * @asciidoc
+	 * A few paragraphs with _emphasis_, *strong* text and `inline code`,
+	 * pointing to {@link Nested} and to {@link List#add(int, Object) the JDK}.
+	 *
+	 * * the first item, referring to {@link Nested#value}
+	 * * the second item, with {@code some code}
+	 * ** a nested item
+	 *
+	 * . an ordered list
+	 * . of two items
+	 *
+	 * term:: and its definition
+	 *
+	 * [cols="1,2"]
+	 * |===
+	 * |Option |Description
+	 *
+	 * |first
+	 * |What the first option does.
+	 * |===
+	 *
+	 * NOTE: An admonition.
+	 *
+	 * WARNING: Another one.
+	 */
+	public String convert(String source, int count) {
+		return source;
+	}
+
+	/**
+	 * @asciidoc
+	 * A block that is mostly code:
+	 *
+	 * [source,java]
+	 * ----
+	 * public class Example {
+	 *     private final {@literal Map<String, List<Integer>>} values = new {@literal HashMap<>}();
+	 *
+	 *     public void add(String key, int value) { // {@literal <1>}
+	 *         values.computeIfAbsent( key, k -> new {@literal ArrayList<>}() ).add( value );
+	 *     }
+	 * }
+	 * ----
+	 * {@literal <1>} A callout.
+	 *
+	 * [source,xml]
+	 * ----
+	 * {@literal <dependency>}
+	 *     {@literal <artifactId>}hibernate-asciidoctor-doclet{@literal </artifactId>}
+	 * {@literal </dependency>}
+	 * ----
+	 *
+	 * [source,sql]
+	 * ----
+	 * select s.name from Sample s where s.id = ?
+	 * ----
+	 *
+	 * [source,ruby]
+	 * ----
+	 * get '/hi' do
+	 *   "Hello World!"
+	 * end
+	 * ----
+	 */
+	public Map<String, List<Integer>> names() {
+		return Map.of();
+	}
+
+	/**
+	 * @asciidoc
+	 * A nested type, see javadoc:Samples#CONSTANT[].
+	 *
+	 * [quote]
+	 * ____
+	 * A quote block.
+	 * ____
+	 *
+	 * ****
+	 * A sidebar.
+	 * ****
+	 */
+	public static class Nested {
+
+		/**
+		 * @asciidoc
+		 * A field of the nested type, with a https://asciidoctor.org[link] and a line +
+		 * break.
+		 */
+		public int value;
+	}
+}
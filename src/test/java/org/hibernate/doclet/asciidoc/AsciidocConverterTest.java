@@ -0,0 +1,128 @@
+package org.hibernate.doclet.asciidoc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class AsciidocConverterTest {
+
+	private static final List<AsciidocSource> SOURCES = List.of(
+			AsciidocSource.of( "some text in `asciidoc`\n" ),
+			AsciidocSource.of( "" ),
+			AsciidocSource.of( "A paragraph with *bold*, _italic_ and a link javadoc:stub[ href='../Some.html#method()', label='Some#method()'] .\n" ),
+			new AsciidocSource(
+					"Links from the side table javadoc:0[] and javadoc:1[] .\n",
+					List.of( link( "../Some.html#method()", "Some#method()" ), link( "../Other.html#", "label with ] and '" ) )
+			),
+			AsciidocSource.of( "[source,java]\n----\nvar a = new FileOutputStream(\"file.name\");\n----\n" ),
+			new AsciidocSource(
+					"More links javadoc:0[] in the same batch.\n",
+					List.of( link( "../Third.html#CONSTANT", "Third#CONSTANT" ) )
+			),
+			AsciidocSource.of( "== A section\n\nwith an id that depends on the rest of the document\n" ),
+			AsciidocSource.of( "* first\n* second\n\nand some text after the list\n" ),
+			AsciidocSource.of( "term::\n" ),
+			AsciidocSource.of( ".A titled example\n====\nnumbered captions depend on the rest of the document as well\n====\n" ),
+			AsciidocSource.of( "last one\n" )
+	);
+
+	private static AsciidocConverter converter;
+
+	@BeforeAll
+	public static void setUp() {
+		converter = new AsciidocConverter();
+	}
+
+	@AfterAll
+	public static void tearDown() {
+		converter.close();
+	}
+
+	@Test
+	public void batchMatchesSeparateConversions() {
+		assertEquals( convertSeparately( SOURCES ), converter.convert( SOURCES ) );
+	}
+
+	@Test
+	public void swallowedBoundary() {
+		List<AsciidocSource> sources = new ArrayList<>( SOURCES );
+		sources.add( 3, AsciidocSource.of( "Unclosed listing block\n\n----\nthat would swallow everything after it\n" ) );
+		assertEquals( convertSeparately( sources ), converter.convert( sources ) );
+	}
+
+	@Test
+	public void batchable() {
+		assertTrue( AsciidocConverter.isBatchable( "some text\n\n====\nexample\n====\n" ) );
+		assertFalse( AsciidocConverter.isBatchable( "== Section\n" ) );
+		assertFalse( AsciidocConverter.isBatchable( ":attribute: value\n" ) );
+		assertFalse( AsciidocConverter.isBatchable( ".Title\n|===\n|a\n|===\n" ) );
+		assertFalse( AsciidocConverter.isBatchable( "text with a footnote:[note]\n" ) );
+		assertFalse( AsciidocConverter.isBatchable( "term::\n" ) );
+	}
+
+	@Test
+	public void linkTable() {
+		String html = converter.convert( SOURCES.get( 3 ) );
+		assertTrue( html.contains( "<a href=\"../Some.html#method()\">Some#method()</a>" ), html );
+		assertTrue( html.contains( "<a href=\"../Other.html#\">label with ] and '</a>" ), html );
+	}
+
+	@Test
+	public void linkTableIsEscaped() {
+		AsciidocSource source = new AsciidocSource( "A generic javadoc:0[] and javadoc:1[] link.\n", List.of(
+				link( "../../p/q/Gen.html#take(java.util.List<java.lang.String>)", "Gen#take(java.util.List<java.lang.String>)" ),
+				link( "../Other.html#", "Tom & \"Jerry\"" )
+		) );
+		String html = converter.convert( source );
+		assertTrue( html.contains( "<a href=\"../../p/q/Gen.html#take(java.util.List&lt;java.lang.String&gt;)\">"
+				+ "Gen#take(java.util.List&lt;java.lang.String&gt;)</a>" ), html );
+		assertTrue( html.contains( "<a href=\"../Other.html#\">Tom &amp; &quot;Jerry&quot;</a>" ), html );
+		assertFalse( html.contains( "<java.lang.String>" ), html );
+	}
+
+	@Test
+	public void unresolvedSymbolsKeepTheirLabel() {
+		String html = converter.convert( AsciidocSource.of( "See javadoc:Unknown[the *label*] and javadoc:Other#member[].\n" ) );
+		assertTrue( html.contains( "See the <strong>label</strong> and <code>Other#member</code>." ), html );
+	}
+
+	@Test
+	public void highlightCssClasses() {
+		AsciidocSource source = SOURCES.get( 4 );
+		String styled = converter.convert( source );
+		// the second time around the highlighted code comes from the cache:
+		assertEquals( styled, converter.convert( source ) );
+		assertTrue( styled.contains( "style=\"" ), styled );
+
+		converter.highlightCss( AsciidocConverter.HIGHLIGHT_CSS_CLASSES );
+		try {
+			String classes = converter.convert( source );
+			assertEquals( classes, converter.convert( source ) );
+			assertFalse( classes.contains( "style=\"" ), classes );
+			assertTrue( classes.contains( "<span class=\"" ), classes );
+			assertTrue( converter.highlightStylesheet().contains( ".CodeRay" ) );
+		}
+		finally {
+			converter.highlightCss( AsciidocConverter.HIGHLIGHT_INLINE_STYLES );
+		}
+	}
+
+	private static List<String> convertSeparately(List<AsciidocSource> sources) {
+		List<String> html = new ArrayList<>();
+		for ( AsciidocSource source : sources ) {
+			html.add( converter.convert( source ) );
+		}
+		return html;
+	}
+
+	private static AsciidocSource.Link link(String href, String label) {
+		return new AsciidocSource.Link( href, label );
+	}
+}
@@ -0,0 +1,153 @@
+package org.hibernate.doclet.asciidoc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class AsciidocDaemonTest {
+
+	private static final Duration IDLE_TIMEOUT = Duration.ofSeconds( 10 );
+	private static final String FINGERPRINT = AsciidocConverter.fingerprint( AsciidocConverter.HIGHLIGHT_INLINE_STYLES );
+
+	@TempDir
+	static Path directory;
+
+	private static Thread daemon;
+
+	@BeforeAll
+	public static void startDaemon() throws InterruptedException {
+		daemon = new Thread( () -> {
+			try {
+				new AsciidocDaemon( directory, IDLE_TIMEOUT, 1 ).serve();
+			}
+			catch (IOException e) {
+				throw new RuntimeException( e );
+			}
+		}, "asciidoc-daemon-test" );
+		daemon.setDaemon( true );
+		daemon.start();
+		long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos( 2 );
+		while ( !Files.exists( directory.resolve( AsciidocDaemon.PORT_FILE ) ) ) {
+			assertTrue( daemon.isAlive() && System.nanoTime() < deadline, "The daemon didn't start" );
+			Thread.sleep( 100 );
+		}
+	}
+
+	@AfterAll
+	public static void stopDaemon() throws InterruptedException {
+		daemon.join( TimeUnit.MINUTES.toMillis( 1 ) );
+	}
+
+	@Test
+	@Order(1)
+	public void sourcesAreConverted() throws IOException {
+		try ( AsciidocDaemonClient client = AsciidocDaemonClient.connect(
+				directory, AsciidocConverter.HIGHLIGHT_INLINE_STYLES, AsciidocIncludes.NONE, FINGERPRINT ) ) {
+			List<String> html = client.convert( List.of(
+					AsciidocSource.of( "Some *text*" ),
+					new AsciidocSource( "A link javadoc:0[]",
+							List.of( new AsciidocSource.Link( "../p/Some.html#", "Some<T>" ) ) ),
+					AsciidocSource.of( "é" )
+			), 2 );
+
+			assertEquals( 3, html.size() );
+			assertTrue( html.get( 0 ).contains( "<strong>text</strong>" ), html.get( 0 ) );
+			assertTrue( html.get( 1 ).contains( "<a href=\"../p/Some.html#\">Some&lt;T&gt;</a>" ),
+					html.get( 1 ) );
+			assertTrue( html.get( 2 ).contains( "é" ), html.get( 2 ) );
+			// the same connection serves any number of requests
+			assertTrue( client.convert( List.of( AsciidocSource.of( "_again_" ) ), 1 ).get( 0 ).contains( "<em>again</em>" ) );
+			assertNull( client.failure() );
+		}
+	}
+
+	@Test
+	@Order(2)
+	public void invalidTokenIsRejected() throws IOException {
+		Path other = Files.createDirectories( directory.resolve( "other" ) );
+		List<String> portFile = Files.readAllLines( directory.resolve( AsciidocDaemon.PORT_FILE ) );
+		Files.write( other.resolve( AsciidocDaemon.PORT_FILE ), List.of( portFile.get( 0 ), "not the token" ) );
+
+		IOException e = assertThrows( IOException.class, () -> AsciidocDaemonClient.connect(
+				other, AsciidocConverter.HIGHLIGHT_INLINE_STYLES, AsciidocIncludes.NONE, FINGERPRINT ) );
+		assertTrue( e.getMessage().contains( "Invalid token" ), e.getMessage() );
+	}
+
+	@Test
+	@Order(3)
+	public void otherSettingsAreRejected() {
+		IOException e = assertThrows( IOException.class, () -> AsciidocDaemonClient.connect(
+				directory, AsciidocConverter.HIGHLIGHT_INLINE_STYLES, AsciidocIncludes.NONE, FINGERPRINT + ";other" ) );
+		assertTrue( e.getMessage().contains( "different settings" ), e.getMessage() );
+	}
+
+	@Test
+	@Order(4)
+	public void includesAreConvertedWithTheSettingsOfTheClient() throws IOException {
+		Path includeDirectory = Files.createDirectories( directory.resolve( "includes" ) );
+		Files.writeString( includeDirectory.resolve( "snippet.adoc" ), "Included *text*\n" );
+		AsciidocIncludes includes = AsciidocIncludes.of(
+				List.of( includeDirectory ), Map.of( "product", "Hibernate ORM" ) );
+
+		try ( AsciidocDaemonClient client = AsciidocDaemonClient.connect(
+				directory, AsciidocConverter.HIGHLIGHT_INLINE_STYLES, includes, FINGERPRINT + includes.fingerprint() ) ) {
+			String html = client.convert( List.of( AsciidocSource.of( "include::snippet.adoc[]\n\nAbout {product}" ) ), 1 )
+					.get( 0 );
+			assertTrue( html.contains( "Included <strong>text</strong>" ), html );
+			assertTrue( html.contains( "About Hibernate ORM" ), html );
+		}
+		// the same connection settings without the includes they were computed for
+		IOException e = assertThrows( IOException.class, () -> AsciidocDaemonClient.connect(
+				directory, AsciidocConverter.HIGHLIGHT_INLINE_STYLES, AsciidocIncludes.NONE,
+				FINGERPRINT + includes.fingerprint() ) );
+		assertTrue( e.getMessage().contains( "different settings" ), e.getMessage() );
+	}
+
+	@Test
+	@Order(5)
+	public void idleConnectionsDoNotKeepTheDaemonAlive() throws IOException, InterruptedException {
+		int port = Integer.parseInt( Files.readAllLines( directory.resolve( AsciidocDaemon.PORT_FILE ) ).get( 0 ) );
+		try ( Socket socket = new Socket( InetAddress.getLoopbackAddress(), port ) ) {
+			socket.setSoTimeout( (int) TimeUnit.MINUTES.toMillis( 1 ) );
+			// a client that never says anything gets disconnected after the idle timeout
+			try ( InputStream in = socket.getInputStream() ) {
+				assertEquals( -1, in.read() );
+			}
+		}
+		daemon.join( TimeUnit.MINUTES.toMillis( 1 ) );
+		assertFalse( daemon.isAlive() );
+		assertFalse( Files.exists( directory.resolve( AsciidocDaemon.PORT_FILE ) ) );
+	}
+
+	@Test
+	public void versionFallsBackToAHashOfTheClasses() {
+		// the test classes come from a directory, without any manifest
+		String version = AsciidocConverter.version( AsciidocDaemonTest.class );
+		assertTrue( version.startsWith( "sha256:" ), version );
+		assertEquals( version, AsciidocConverter.version( AsciidocDaemonTest.class ) );
+		assertNotEquals( version, AsciidocConverter.version( AsciidocConverter.class ) );
+	}
+}
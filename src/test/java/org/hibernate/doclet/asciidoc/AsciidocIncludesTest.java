@@ -0,0 +1,144 @@
+package org.hibernate.doclet.asciidoc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class AsciidocIncludesTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void targetsAreConfinedToTheBaseDirectories() throws IOException {
+		Path base = Files.createDirectories( directory.resolve( "base" ) );
+		Files.writeString( base.resolve( "snippet.adoc" ), "snippet" );
+		Files.writeString( directory.resolve( "secret.txt" ), "secret" );
+		AsciidocIncludes includes = AsciidocIncludes.create( List.of( base ), null );
+
+		assertEquals( base.resolve( "snippet.adoc" ).toRealPath(), includes.resolve( "snippet.adoc" ) );
+		assertNull( includes.resolve( "../secret.txt" ) );
+		assertNull( includes.resolve( directory.resolve( "secret.txt" ).toString() ) );
+		assertNull( includes.resolve( "https://example.org/snippet.adoc" ) );
+	}
+
+	@Test
+	public void changedFilesAreReadAgain() throws IOException {
+		Path file = Files.writeString( directory.resolve( "snippet.adoc" ), "first" );
+		AsciidocIncludes includes = AsciidocIncludes.create( List.of( directory ), null );
+
+		assertEquals( "first", includes.read( includes.resolve( "snippet.adoc" ) ) );
+		Files.writeString( file, "second" );
+		Files.setLastModifiedTime( file, FileTime.fromMillis( Files.getLastModifiedTime( file ).toMillis() + 2000 ) );
+		assertEquals( "second", includes.read( includes.resolve( "snippet.adoc" ) ) );
+	}
+
+	@Test
+	public void blocksDependOnTheFilesTheyInclude() throws IOException {
+		Path including = Files.writeString( directory.resolve( "including.adoc" ), "include::nested.adoc[]\n" );
+		Path nested = Files.writeString( directory.resolve( "nested.adoc" ), "nested" );
+		Path unrelated = Files.writeString( directory.resolve( "unrelated.adoc" ), "unrelated" );
+		AsciidocIncludes includes = AsciidocIncludes.create( List.of( directory ), null );
+		String block = "Some text\n\ninclude::including.adoc[]\n";
+
+		assertEquals( "", includes.fingerprint( "Some text" ) );
+		assertEquals( "", includes.fingerprint( "\\include::including.adoc[]" ) );
+		String fingerprint = includes.fingerprint( block );
+		assertNotEquals( "", fingerprint );
+
+		touch( unrelated );
+		assertEquals( fingerprint, includes.fingerprint( block ) );
+		touch( nested );
+		String changed = includes.fingerprint( block );
+		assertNotEquals( fingerprint, changed );
+		touch( including );
+		assertNotEquals( changed, includes.fingerprint( block ) );
+	}
+
+	@Test
+	public void unresolvedTargetsDependOnAllTheFiles() throws IOException {
+		Path unrelated = Files.writeString( directory.resolve( "unrelated.adoc" ), "unrelated" );
+		AsciidocIncludes includes = AsciidocIncludes.create( List.of( directory ), null );
+		String block = ":name: snippet\n\ninclude::{name}.adoc[]\n";
+
+		String fingerprint = includes.fingerprint( block );
+		assertNotEquals( "", fingerprint );
+		assertEquals( fingerprint, includes.fingerprint( "include::missing.adoc[]" ) );
+		// computed once per run: a later change is only seen by the next one
+		touch( unrelated );
+		assertEquals( fingerprint, includes.fingerprint( block ) );
+		assertNotEquals( fingerprint, AsciidocIncludes.create( List.of( directory ), null ).fingerprint( block ) );
+	}
+
+	@Test
+	public void selectsTaggedRegionsAndLines() {
+		String content = "intro\n// tag::a[]\nfirst\n// end::a[]\n// tag::b[]\nsecond\n// end::b[]\n";
+
+		assertEquals( "first\n", AsciidocIncludeProcessor.select( content, Map.of( "tag", "a" ) ) );
+		assertEquals( "first\nsecond\n", AsciidocIncludeProcessor.select( content, Map.of( "tags", "a;b" ) ) );
+		assertEquals( "intro\nfirst\n", AsciidocIncludeProcessor.select( content, Map.of( "lines", "1;3" ) ) );
+	}
+
+	@Test
+	public void selectsLikeAsciidoctor() {
+		String content = "intro\n// tag::a[]\nfirst\n// tag::nested[]\ninner\n// end::nested[]\n// end::a[]\n"
+				+ "// tag::b[]\nsecond\n// end::b[]\noutro\n";
+
+		assertEquals( "intro\nfirst\ninner\nsecond\noutro\n", select( content, "tags", "**" ) );
+		assertEquals( "first\ninner\nsecond\n", select( content, "tags", "*" ) );
+		assertEquals( "intro\nsecond\noutro\n", select( content, "tag", "!a" ) );
+		assertEquals( "intro\nfirst\ninner\noutro\n", select( content, "tags", "**;!b" ) );
+		assertEquals( "first\nsecond\n", select( content, "tags", "*;!nested" ) );
+		assertEquals( "first\nsecond\n", select( content, "tags", "!nested,*" ) );
+		assertEquals( "intro\noutro\n", select( content, "tags", "**;!*" ) );
+		assertEquals( content, select( content, "tags", ";" ) );
+		assertNull( select( content, "tag", "missing" ) );
+
+		assertEquals( "intro\nfirst\n", select( content, "lines", "3,1" ) );
+		assertEquals( "second\n// end::b[]\noutro\n", select( content, "lines", "9.." ) );
+		assertEquals( "intro\n// end::b[]\noutro\n", select( content, "lines", "1;10..-1" ) );
+		assertNull( select( content, "lines", "0" ) );
+		// lines win over tags, as they do in Asciidoctor
+		assertEquals( "intro\n", AsciidocIncludeProcessor.select( content, Map.of( "lines", "1", "tags", "b" ) ) );
+	}
+
+	@Test
+	public void nestedIncludesAreRelativeToTheirFile() throws IOException {
+		Path sub = Files.createDirectories( directory.resolve( "sub" ) );
+		Files.writeString( sub.resolve( "outer.adoc" ), "include::inner.adoc[]\n" );
+		Path inner = Files.writeString( sub.resolve( "inner.adoc" ), "From *sub*\n" );
+		Files.writeString( directory.resolve( "inner.adoc" ), "From *base*\n" );
+		Files.writeString( directory.resolve( "code.java" ), "        indented();\n            more();\n" );
+		AsciidocIncludes includes = AsciidocIncludes.create( List.of( directory ), null );
+
+		assertEquals( inner.toRealPath(), includes.resolve( "inner.adoc", sub.toRealPath() ) );
+		assertNull( includes.resolve( "../../secret.txt", sub.toRealPath() ) );
+
+		try ( AsciidocConverter converter = new AsciidocConverter() ) {
+			converter.includes( includes );
+			String html = converter.convert( AsciidocSource.of(
+					"include::sub/outer.adoc[]\n\n[source]\n----\ninclude::code.java[indent=0]\n----\n" ) );
+			assertTrue( html.contains( "From <strong>sub</strong>" ), html );
+			assertTrue( html.contains( "<code>indented();\n    more();</code>" ), html );
+		}
+	}
+
+	private static String select(String content, String name, String value) {
+		return AsciidocIncludeProcessor.select( content, Map.of( name, value ) );
+	}
+
+	private static void touch(Path file) throws IOException {
+		Files.setLastModifiedTime( file, FileTime.fromMillis( Files.getLastModifiedTime( file ).toMillis() + 2000 ) );
+	}
+}
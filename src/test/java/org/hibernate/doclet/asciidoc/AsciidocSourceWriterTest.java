@@ -0,0 +1,149 @@
+package org.hibernate.doclet.asciidoc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.lang.model.element.Element;
+
+import jdk.javadoc.doclet.DocletEnvironment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class AsciidocSourceWriterTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void macrosWithinVerbatimBlocksAreKept() throws IOException {
+		Map<String, String> sources = new HashMap<>( SymbolIndexTest.SOURCES );
+		sources.put( "p/q/Doc.java", "package p.q;\n"
+				+ "/**\n"
+				+ " * @asciidoc See javadoc:Outer[].\n"
+				+ " *\n"
+				+ " * [source]\n"
+				+ " * ----\n"
+				+ " * javadoc:Outer[] in a {@code listing}\n"
+				+ " * ....\n"
+				+ " * javadoc:Outer[]\n"
+				+ " * ----\n"
+				+ " *\n"
+				+ " * Then javadoc:Outer[the type] again.\n"
+				+ " *\n"
+				+ " * ....\n"
+				+ " * javadoc:Outer[]\n"
+				+ " * ....\n"
+				+ " * ++++\n"
+				+ " * javadoc:Outer[]\n"
+				+ " * ++++\n"
+				+ " * ////\n"
+				+ " * javadoc:Outer[]\n"
+				+ " * ////\n"
+				+ " * ```java\n"
+				+ " * javadoc:Outer[]\n"
+				+ " * ```\n"
+				+ " * --\n"
+				+ " * javadoc:Outer#CONSTANT[] within an open block\n"
+				+ " * --\n"
+				+ " */\n"
+				+ "public class Doc {\n"
+				+ "}\n" );
+		TestDoclet.run( directory, sources, environment -> {
+			AsciidocSourceWriter writer = new AsciidocSourceWriter( environment.getDocTrees(),
+					new LinksHelper( environment.getElementUtils(), List.of(), Map.of() ),
+					SymbolIndex.create( environment ), null, true );
+			Element doc = TestDoclet.type( environment, "p.q.Doc" );
+
+			AsciidocSource source = writer.write(
+					AsciidocPrerenderer.asciidocTag( environment.getDocTrees().getDocCommentTree( doc ) ), doc );
+
+			assertEquals( "See javadoc:0[].\n"
+					+ "\n"
+					+ "[source]\n"
+					+ "----\n"
+					+ "javadoc:Outer[] in a `listing`\n"
+					+ "....\n"
+					+ "javadoc:Outer[]\n"
+					+ "----\n"
+					+ "\n"
+					+ "Then javadoc:1[] again.\n"
+					+ "\n"
+					+ "....\n"
+					+ "javadoc:Outer[]\n"
+					+ "....\n"
+					+ "++++\n"
+					+ "javadoc:Outer[]\n"
+					+ "++++\n"
+					+ "////\n"
+					+ "javadoc:Outer[]\n"
+					+ "////\n"
+					+ "```java\n"
+					+ "javadoc:Outer[]\n"
+					+ "```\n"
+					+ "--\n"
+					+ "javadoc:2[] within an open block\n"
+					+ "--", source.text() );
+			assertEquals( List.of( "p.q.Outer", "the type", "Outer#CONSTANT" ),
+					List.of( source.links().get( 0 ).label(), source.links().get( 1 ).label(),
+							source.links().get( 2 ).label() ) );
+		} );
+	}
+
+	@Test
+	public void linksResolveWithinTheScopeOfEachElement() throws IOException {
+		Map<String, String> sources = new HashMap<>( SymbolIndexTest.SOURCES );
+		sources.put( "p/q/UsesSame.java", "package p.q;\n"
+				+ "/**\n"
+				+ " * @asciidoc See {@link Same}.\n"
+				+ " */\n"
+				+ "public class UsesSame {\n"
+				+ "}\n" );
+		sources.put( "p/r/UsesSame.java", "package p.r;\n"
+				+ "/**\n"
+				+ " * @asciidoc See {@link Same}.\n"
+				+ " */\n"
+				+ "public class UsesSame {\n"
+				+ "\t/**\n"
+				+ "\t * @asciidoc See {@link Same}.\n"
+				+ "\t */\n"
+				+ "\tpublic void member() {\n"
+				+ "\t}\n"
+				+ "}\n" );
+		sources.put( "p/r/s/UsesSame.java", "package p.r.s;\n"
+				+ "import p.r.Same;\n"
+				+ "/**\n"
+				+ " * @asciidoc See {@link Same}.\n"
+				+ " */\n"
+				+ "public class UsesSame {\n"
+				+ "}\n" );
+		TestDoclet.run( directory, sources, environment -> {
+			// one writer for all of them, just like a run of the doclet
+			AsciidocSourceWriter writer = new AsciidocSourceWriter( environment.getDocTrees(),
+					new LinksHelper( environment.getElementUtils(), List.of(), Map.of() ),
+					SymbolIndex.create( environment ), null, true );
+
+			Element q = TestDoclet.type( environment, "p.q.UsesSame" );
+			Element r = TestDoclet.type( environment, "p.r.UsesSame" );
+			Element rMember = TestDoclet.member( environment, "p.r.UsesSame", "member" );
+			Element s = TestDoclet.type( environment, "p.r.s.UsesSame" );
+
+			assertEquals( "../../p/q/Same.html#", href( environment, writer, q ) );
+			assertEquals( "../../p/r/Same.html#", href( environment, writer, r ) );
+			assertEquals( "../../p/r/Same.html#", href( environment, writer, rMember ) );
+			// resolved to the same element as from p.r, but from a page one level deeper
+			assertEquals( "../../../p/r/Same.html#", href( environment, writer, s ) );
+			assertEquals( "../../p/q/Same.html#", href( environment, writer, q ) );
+		} );
+	}
+
+	private static String href(DocletEnvironment environment, AsciidocSourceWriter writer, Element element) {
+		AsciidocSource source = writer.write(
+				AsciidocPrerenderer.asciidocTag( environment.getDocTrees().getDocCommentTree( element ) ), element );
+		assertEquals( 1, source.links().size() );
+		return source.links().get( 0 ).href();
+	}
+}
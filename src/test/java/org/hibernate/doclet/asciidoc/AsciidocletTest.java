@@ -0,0 +1,144 @@
+package org.hibernate.doclet.asciidoc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class AsciidocletTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void runWithoutAsciidocNeverStartsTheRuntime() throws IOException {
+		Path sources = directory.resolve( "sources" );
+		TestDoclet.write( sources, Map.of(
+				"p/Plain.java", "package p;\n"
+						+ "/**\n"
+						+ " * Plain javadoc, {@link Plain#get() with a link}.\n"
+						+ " */\n"
+						+ "public class Plain {\n"
+						+ "\t/** @return nothing. */\n"
+						+ "\tpublic Object get() {\n"
+						+ "\t\treturn null;\n"
+						+ "\t}\n"
+						+ "}\n"
+		) );
+
+		RuntimeDoclet.runtime = AsciidoctorRuntime.create();
+		Path incremental = directory.resolve( "incremental" );
+		TestDoclet.javadoc( sources, directory.resolve( "docs" ), RuntimeDoclet.class,
+				"-quiet", "--asciidoc-prerender-workers", "2", "--asciidoc-highlight-css", "class",
+				"--asciidoc-incremental", incremental.toString() );
+
+		assertFalse( RuntimeDoclet.runtime.isStarted() );
+		assertTrue( Files.exists( directory.resolve( "docs/p/Plain.html" ) ) );
+		// nor fingerprints the types
+		assertFalse( Files.exists( incremental.resolve( "manifest.properties" ) ) );
+	}
+
+	@Test
+	public void prerenderedPagesAreTheSameAsTheOnesConvertedByTheTaglet() throws IOException {
+		Path sources = directory.resolve( "sources" );
+		StringBuilder members = new StringBuilder();
+		for ( int i = 0; i < 8; i++ ) {
+			members.append( "\t/**\n" )
+					.append( "\t * Member " ).append( i ).append( ".\n" )
+					.append( "\t *\n" )
+					.append( "\t * @asciidoc * a list item linking {@link Blocks#member" )
+					.append( ( i + 1 ) % 8 ).append( "()}\n" )
+					.append( "\t *\n" )
+					.append( "\t * [source,java]\n" )
+					.append( "\t * ----\n" )
+					.append( "\t * var i = " ).append( i ).append( ";\n" )
+					.append( "\t * ----\n" )
+					.append( "\t */\n" )
+					.append( "\tpublic void member" ).append( i ).append( "() {\n\t}\n" );
+		}
+		TestDoclet.write( sources, Map.of(
+				"p/Blocks.java", "package p;\n"
+						+ "/**\n"
+						+ " * Blocks.\n"
+						+ " *\n"
+						+ " * @asciidoc NOTE: needs Asciidoctor, *not* the fast path.\n"
+						+ " */\n"
+						+ "public class Blocks {\n"
+						+ members
+						+ "}\n"
+		) );
+
+		RuntimeDoclet.runtime = AsciidoctorRuntime.create();
+		TestDoclet.javadoc( sources, directory.resolve( "converted" ), RuntimeDoclet.class,
+				"-quiet", "-notimestamp" );
+		Path metrics = directory.resolve( "metrics.json" );
+		TestDoclet.javadoc( sources, directory.resolve( "prerendered" ), RuntimeDoclet.class,
+				"-quiet", "-notimestamp", "--asciidoc-prerender-workers", "3", "--asciidoc-batch-size", "2",
+				"--asciidoc-metrics-report", metrics.toString() );
+
+		String converted = Files.readString( directory.resolve( "converted/p/Blocks.html" ) );
+		assertTrue( converted.contains( "<pre class=\"CodeRay highlight\"" ), converted );
+		assertTrue( converted.contains( "href=\"../p/Blocks.html#member0()\"" ), converted );
+		assertEquals( converted, Files.readString( directory.resolve( "prerendered/p/Blocks.html" ) ) );
+		// the taglet got the blocks from the workers
+		String report = Files.readString( metrics );
+		assertFalse( report.contains( "\"prerenderedHits\": 0," ), report );
+	}
+
+	@Test
+	public void parsesDurationsAndSizes() {
+		assertEquals( Duration.ofSeconds( 5 ), Asciidoclet.parseDuration( "5" ) );
+		assertEquals( Duration.ofSeconds( 30 ), Asciidoclet.parseDuration( " 30s " ) );
+		assertEquals( Duration.ofMinutes( 10 ), Asciidoclet.parseDuration( "10M" ) );
+		assertEquals( Duration.ofDays( 7 ), Asciidoclet.parseDuration( "7d" ) );
+		assertEquals( 5, Asciidoclet.parseSize( "5" ) );
+		assertEquals( 64L * 1024 * 1024, Asciidoclet.parseSize( "64m" ) );
+
+		for ( String invalid : List.of( "", " ", "s", "x", "1x", "1.5h", "99999999999999999d" ) ) {
+			assertThrows( IllegalArgumentException.class, () -> Asciidoclet.parseDuration( invalid ), invalid );
+		}
+		for ( String invalid : List.of( "", "k", "1x", "99999999999g" ) ) {
+			assertThrows( IllegalArgumentException.class, () -> Asciidoclet.parseSize( invalid ), invalid );
+		}
+	}
+
+	@Test
+	public void invalidOptionValuesAreReportedAsErrors() throws IOException {
+		Path sources = directory.resolve( "sources" );
+		TestDoclet.write( sources, Map.of( "p/Plain.java", "package p;\n/** Plain. */\npublic class Plain {\n}\n" ) );
+
+		for ( List<String> options : List.of(
+				List.of( "--asciidoc-link-cache-ttl", "" ),
+				List.of( "--asciidoc-link-timeout", "soon" ),
+				List.of( "--asciidoc-prerender-workers", "many" ),
+				List.of( "--asciidoc-cache-max-size", "1x" ),
+				List.of( "--asciidoc-link-placeholders", "inline" ),
+				List.of( "--asciidoc-highlight-css", "none" ) ) ) {
+			String printed = TestDoclet.failingJavadoc( sources, directory.resolve( "docs" ), Asciidoclet.class,
+					options.toArray( new String[0] ) );
+			assertTrue( printed.contains( options.get( 0 ) ), printed );
+			assertFalse( printed.contains( "Exception" ), printed );
+		}
+	}
+
+	/**
+	 * The doclet converting with the runtime of the test, rather than the shared one.
+	 */
+	public static class RuntimeDoclet extends Asciidoclet {
+		static AsciidoctorRuntime runtime;
+
+		public RuntimeDoclet() {
+			super( runtime );
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package org.hibernate.doclet.asciidoc;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class AsciidoctorRuntimeTest {
+
+	private static final AsciidocSource SOURCE = AsciidocSource.of(
+			"[source,java]\n----\nvar a = new FileOutputStream(\"file.name\");\n----\n" );
+
+	@Test
+	public void concurrentRunsKeepTheirOwnSettings() throws Exception {
+		AsciidoctorRuntime styles = AsciidoctorRuntime.shared()
+				.withSettings( AsciidocConverter.HIGHLIGHT_INLINE_STYLES, AsciidocIncludes.NONE );
+		AsciidoctorRuntime classes = AsciidoctorRuntime.shared()
+				.withSettings( AsciidocConverter.HIGHLIGHT_CSS_CLASSES, AsciidocIncludes.NONE );
+
+		ExecutorService executor = Executors.newFixedThreadPool( 2 );
+		try {
+			List<Future<List<String>>> runs = new ArrayList<>();
+			for ( AsciidoctorRuntime runtime : List.of( styles, classes ) ) {
+				runs.add( executor.submit( () -> {
+					List<String> html = new ArrayList<>();
+					for ( int i = 0; i < 20; i++ ) {
+						AsciidocConverter converter = runtime.acquire();
+						try {
+							html.add( converter.convert( SOURCE ) );
+						}
+						finally {
+							runtime.release();
+						}
+					}
+					return html;
+				} ) );
+			}
+			for ( String html : runs.get( 0 ).get() ) {
+				assertTrue( html.contains( "style=\"" ), html );
+			}
+			for ( String html : runs.get( 1 ).get() ) {
+				assertFalse( html.contains( "style=\"" ), html );
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void bootsInTheBackground() throws InterruptedException {
+		AsciidoctorRuntime runtime = AsciidoctorRuntime.create();
+		assertFalse( runtime.isStarted() );
+
+		runtime.bootInBackground();
+		runtime.bootInBackground();
+		assertTrue( runtime.isStarted() );
+		// booted and warmed up without anyone asking for the converter
+		long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos( 2 );
+		while ( !runtime.isBooted() ) {
+			assertTrue( System.nanoTime() < deadline, "The runtime didn't boot" );
+			Thread.sleep( 100 );
+		}
+
+		AsciidocConverter converter = runtime.acquire();
+		try {
+			assertTrue( converter.convert( SOURCE ).contains( "FileOutputStream" ) );
+		}
+		finally {
+			runtime.release();
+		}
+		AsciidocConverter again = runtime.acquire();
+		runtime.release();
+		assertSame( converter, again );
+		converter.close();
+	}
+}
@@ -0,0 +1,189 @@
+package org.hibernate.doclet.asciidoc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.lang.model.element.Element;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DocletMetricsTest {
+
+	private static final String NAME = "a \"quoted\" \\ name\twith\u0001control";
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void reportIsValidJson() throws IOException {
+		DocletMetrics metrics = DocletMetrics.create();
+		metrics.conversion( element( NAME ), AsciidocSource.of( "some text" ), "<p>some text</p>", metrics.start() );
+		metrics.conversion( element( "second" ), AsciidocSource.of( "é" ), "<p>é</p>", metrics.start() );
+		metrics.cacheHit();
+		metrics.link( true, metrics.start() );
+		metrics.elementList( "https://example.org/\"api\"/", NAME, 3, 10, 20 );
+		metrics.elementList( "https://example.org/other/", "cache", 1, 10, 20 );
+
+		Path report = directory.resolve( "nested/report.json" );
+		metrics.write( report );
+
+		Map<?, ?> json = (Map<?, ?>) new Json( Files.readString( report ) ).parse();
+		Map<?, ?> conversions = (Map<?, ?>) json.get( "conversions" );
+		assertEquals( 2L, conversions.get( "count" ) );
+		assertEquals( 11L, conversions.get( "bytesIn" ) );
+		assertEquals( 1L, conversions.get( "cacheHits" ) );
+		List<?> slowest = (List<?>) conversions.get( "slowest" );
+		assertEquals( 2, slowest.size() );
+		List<Object> names = new ArrayList<>();
+		for ( Object conversion : slowest ) {
+			names.add( ( (Map<?, ?>) conversion ).get( "element" ) );
+		}
+		assertTrue( names.contains( NAME ), names.toString() );
+		assertEquals( 1L, ( (Map<?, ?>) json.get( "links" ) ).get( "external" ) );
+		List<?> lists = (List<?>) json.get( "elementLists" );
+		assertEquals( 2, lists.size() );
+		assertEquals( "https://example.org/\"api\"/", ( (Map<?, ?>) lists.get( 0 ) ).get( "link" ) );
+		assertEquals( NAME, ( (Map<?, ?>) lists.get( 0 ) ).get( "location" ) );
+	}
+
+	@Test
+	public void emptyReportIsValidJson() throws IOException {
+		Path report = directory.resolve( "report.json" );
+		DocletMetrics.create().write( report );
+
+		Map<?, ?> json = (Map<?, ?>) new Json( Files.readString( report ) ).parse();
+		assertEquals( List.of(), ( (Map<?, ?>) json.get( "conversions" ) ).get( "slowest" ) );
+		assertEquals( List.of(), json.get( "elementLists" ) );
+	}
+
+	private static Element element(String name) {
+		return (Element) Proxy.newProxyInstance( Element.class.getClassLoader(), new Class<?>[] { Element.class },
+				(proxy, method, args) -> "toString".equals( method.getName() ) ? name : null );
+	}
+
+	/*
+	 * Just enough of a strict JSON parser for the report: objects, arrays, strings and integers.
+	 */
+	private static final class Json {
+		private final String text;
+		private int i;
+
+		private Json(String text) {
+			this.text = text;
+		}
+
+		Object parse() {
+			Object value = value();
+			skipWhitespace();
+			assertEquals( text.length(), i, "Trailing content" );
+			return value;
+		}
+
+		private Object value() {
+			skipWhitespace();
+			char c = text.charAt( i );
+			if ( c == '{' ) {
+				Map<String, Object> object = new LinkedHashMap<>();
+				i++;
+				skipWhitespace();
+				if ( text.charAt( i ) == '}' ) {
+					i++;
+					return object;
+				}
+				do {
+					skipWhitespace();
+					String key = string();
+					skipWhitespace();
+					expect( ':' );
+					object.put( key, value() );
+					skipWhitespace();
+				}
+				while ( text.charAt( i++ ) == ',' );
+				assertEquals( '}', text.charAt( i - 1 ), "at " + i );
+				return object;
+			}
+			if ( c == '[' ) {
+				List<Object> array = new ArrayList<>();
+				i++;
+				skipWhitespace();
+				if ( text.charAt( i ) == ']' ) {
+					i++;
+					return array;
+				}
+				do {
+					array.add( value() );
+					skipWhitespace();
+				}
+				while ( text.charAt( i++ ) == ',' );
+				assertEquals( ']', text.charAt( i - 1 ), "at " + i );
+				return array;
+			}
+			if ( c == '"' ) {
+				return string();
+			}
+			int start = i;
+			while ( i < text.length() && ( Character.isDigit( text.charAt( i ) ) || text.charAt( i ) == '-' ) ) {
+				i++;
+			}
+			return Long.parseLong( text.substring( start, i ) );
+		}
+
+		private String string() {
+			expect( '"' );
+			StringBuilder sb = new StringBuilder();
+			for ( char c = text.charAt( i++ ); c != '"'; c = text.charAt( i++ ) ) {
+				if ( c < 0x20 ) {
+					throw new AssertionError( "Unescaped control character at " + i );
+				}
+				if ( c != '\\' ) {
+					sb.append( c );
+					continue;
+				}
+				char escaped = text.charAt( i++ );
+				switch ( escaped ) {
+					case 'n':
+						sb.append( '\n' );
+						break;
+					case 'r':
+						sb.append( '\r' );
+						break;
+					case 't':
+						sb.append( '\t' );
+						break;
+					case 'u':
+						sb.append( (char) Integer.parseInt( text.substring( i, i + 4 ), 16 ) );
+						i += 4;
+						break;
+					case '"':
+					case '\\':
+					case '/':
+						sb.append( escaped );
+						break;
+					default:
+						throw new AssertionError( "Invalid escape \\" + escaped + " at " + i );
+				}
+			}
+			return sb.toString();
+		}
+
+		private void expect(char c) {
+			assertEquals( c, text.charAt( i ), "at " + i );
+			i++;
+		}
+
+		private void skipWhitespace() {
+			while ( i < text.length() && Character.isWhitespace( text.charAt( i ) ) ) {
+				i++;
+			}
+		}
+	}
+}
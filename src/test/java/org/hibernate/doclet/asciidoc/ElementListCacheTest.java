@@ -0,0 +1,147 @@
+package org.hibernate.doclet.asciidoc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ElementListCacheTest {
+
+	private static final String ETAG = "\"v1\"";
+	private static final Duration TIMEOUT = Duration.ofSeconds( 5 );
+
+	@TempDir
+	Path cacheDirectory;
+
+	private HttpServer server;
+	private final AtomicInteger requests = new AtomicInteger();
+	private final AtomicInteger notModified = new AtomicInteger();
+	private volatile String elementList = "java.lang\njava.util\n";
+
+	@BeforeEach
+	public void startServer() throws IOException {
+		server = HttpServer.create( new InetSocketAddress( InetAddress.getLoopbackAddress(), 0 ), 0 );
+		server.createContext( "/api/element-list", exchange -> {
+			requests.incrementAndGet();
+			if ( ETAG.equals( exchange.getRequestHeaders().getFirst( "If-None-Match" ) ) ) {
+				notModified.incrementAndGet();
+				exchange.sendResponseHeaders( 304, -1 );
+			}
+			else {
+				byte[] body = elementList.getBytes( StandardCharsets.UTF_8 );
+				exchange.getResponseHeaders().add( "ETag", ETAG );
+				exchange.sendResponseHeaders( 200, body.length );
+				try ( OutputStream output = exchange.getResponseBody() ) {
+					output.write( body );
+				}
+			}
+			exchange.close();
+		} );
+		server.start();
+	}
+
+	@AfterEach
+	public void stopServer() {
+		if ( server != null ) {
+			server.stop( 0 );
+		}
+	}
+
+	@Test
+	public void freshEntryIsServedWithoutRequest() throws IOException {
+		ElementListCache cache = ElementListCache.create( cacheDirectory, Duration.ofHours( 1 ), TIMEOUT );
+
+		assertEquals( "java.lang\njava.util\n", read( cache, url() ) );
+		assertEquals( "java.lang\njava.util\n", read( cache, url() ) );
+		assertEquals( 1, requests.get() );
+	}
+
+	@Test
+	public void staleEntryIsRevalidated() throws IOException {
+		ElementListCache cache = ElementListCache.create( cacheDirectory, Duration.ZERO, TIMEOUT );
+
+		assertEquals( "java.lang\njava.util\n", read( cache, url() ) );
+		// the server would return something else if the cached ETag wasn't sent along:
+		elementList = "changed\n";
+		assertEquals( "java.lang\njava.util\n", read( cache, url() ) );
+		assertEquals( 2, requests.get() );
+		assertEquals( 1, notModified.get() );
+	}
+
+	@Test
+	public void corruptMetadataIsRefetched() throws IOException {
+		ElementListCache cache = ElementListCache.create( cacheDirectory, Duration.ofHours( 1 ), TIMEOUT );
+
+		assertEquals( "java.lang\njava.util\n", read( cache, url() ) );
+		try ( Stream<Path> files = Files.list( cacheDirectory ) ) {
+			for ( Path file : files.filter( f -> f.toString().endsWith( ".properties" ) ).collect( Collectors.toList() ) ) {
+				Files.writeString( file, "fetched-at=yesterday\n" );
+			}
+		}
+		elementList = "changed\n";
+		assertEquals( "changed\n", read( cache, url() ) );
+		assertEquals( 2, requests.get() );
+	}
+
+	@Test
+	public void staleEntryIsUsedOffline() throws IOException {
+		ElementListCache cache = ElementListCache.create( cacheDirectory, Duration.ZERO, TIMEOUT );
+		URL url = url();
+
+		assertEquals( "java.lang\njava.util\n", read( cache, url ) );
+		server.stop( 0 );
+		server = null;
+		assertEquals( "java.lang\njava.util\n", read( cache, url ) );
+	}
+
+	@Test
+	public void missingEntryOffline() throws IOException {
+		ElementListCache cache = ElementListCache.create( cacheDirectory, Duration.ZERO, TIMEOUT );
+		URL url = url();
+		server.stop( 0 );
+		server = null;
+
+		assertThrows( IOException.class, () -> read( cache, url ) );
+	}
+
+	@Test
+	public void failedCacheWriteStillServesTheFetchedList() throws IOException {
+		ElementListCache cache = ElementListCache.create( cacheDirectory, Duration.ofHours( 1 ), TIMEOUT );
+		URL url = url();
+		// a directory in the way of the cached list
+		Files.createDirectories( cacheDirectory.resolve( CacheFiles.sha256( url.toString() ) + ".list/in-the-way" ) );
+
+		assertEquals( "java.lang\njava.util\n", read( cache, url ) );
+		assertEquals( "java.lang\njava.util\n", read( cache, url ) );
+		assertEquals( 2, requests.get() );
+	}
+
+	private URL url() throws IOException {
+		InetSocketAddress address = server.getAddress();
+		return new URL( "http://" + address.getHostString() + ":" + address.getPort() + "/api/element-list" );
+	}
+
+	private static String read(ElementListCache cache, URL url) throws IOException {
+		try ( InputStream input = cache.open( url ) ) {
+			return new String( input.readAllBytes(), StandardCharsets.UTF_8 );
+		}
+	}
+}
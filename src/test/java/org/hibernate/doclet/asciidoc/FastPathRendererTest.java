@@ -0,0 +1,132 @@
+package org.hibernate.doclet.asciidoc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Differential tests: whatever the fast path renders must be exactly what Asciidoctor produces.
+ */
+public class FastPathRendererTest {
+
+	private static final List<AsciidocSource.Link> LINKS = List.of(
+			new AsciidocSource.Link( "../some/Type.html#method(java.lang.String)", "Type#method(java.lang.String)" ),
+			new AsciidocSource.Link( "https://docs.example.org/api/java/util/List.html#", "a <label> with ] and '" )
+	);
+
+	private static final List<String> SUPPORTED = List.of(
+			"",
+			"Just some text.\n",
+			"\n\nFirst paragraph\nspanning two lines   \n\n\n\nSecond *bold* and _emphasis_ and `code`.\n\n",
+			"A link javadoc:0[] and another one javadoc:1[] .\n",
+			"*javadoc:0[]* and `javadoc:1[]` and (_javadoc:0[]_)\n",
+			"Generic `List<String>` and a > b, a < b.\n",
+			"snake_case and x*y and x * y are left alone, e.g. this; and that!\n",
+			"*bold*: yes, _it_? (`code`) *ok*.\n",
+			"1984 was a year\nNOTE without a colon\n"
+	);
+
+	private static final List<String> UNSUPPORTED = List.of(
+			"== Section\n",
+			"* item\n",
+			"- item\n",
+			"1. item\n",
+			"NOTE: admonition\n",
+			".Title\n",
+			"[source,java]\n----\ncode\n----\n",
+			" literal paragraph\n",
+			"term:: description\n",
+			"An {attribute} reference\n",
+			"A link:https://example.org[link]\n",
+			"Some https://example.org URL\n",
+			"It's smart quotes\n",
+			"An em -- dash\n",
+			"An ellipsis...\n",
+			"Copyright (C)\n",
+			"An arrow -> here\n",
+			"**unconstrained**\n",
+			"*nested _formatting_*\n",
+			"#highlight#\n",
+			"line break +\nhere\n",
+			"A javadoc:stub[ href='a', label='b'] placeholder\n",
+			"Missing link javadoc:2[]\n",
+			"include::file.adoc[]\n",
+			"// a comment\n"
+	);
+
+	private static final String[] FRAGMENTS = {
+			"text", "Some", "e.g.", "List<String>", "a > b", "*bold*", "_it_", "`code`", "`a b`", "javadoc:0[]",
+			"javadoc:1[]", "(note)", "x * y", "a_b_c", "end.", ",", ":", "this:", "--", "...", "it's", "(C)", "#mark#",
+			"**", "a=b", "=>", "<-", "1.", "*", "_", "`", "NOTE:", "http://example.org", "{attr}", "[x]", "-", ".", "/",
+			"*x*y", "(_x_)", "`x`.", "*a b*", "* a*", "x_", "<<ref>>", "&amp;", "\"q\"", "+", "|", "~x~", "^x^"
+	};
+	private static final String[] SEPARATORS = { " ", " ", " ", "", "\n", "\n\n", "\n ", "  \n" };
+
+	private static AsciidocConverter converter;
+
+	@BeforeAll
+	public static void setUp() {
+		converter = new AsciidocConverter();
+	}
+
+	@AfterAll
+	public static void tearDown() {
+		converter.close();
+	}
+
+	@Test
+	public void supported() {
+		for ( String text : SUPPORTED ) {
+			AsciidocSource source = new AsciidocSource( text, LINKS );
+			String html = FastPathRenderer.render( source );
+			assertNotNull( html, text );
+			assertEquals( converter.convert( source ), html, text );
+		}
+	}
+
+	@Test
+	public void linksAreEscaped() {
+		AsciidocSource source = new AsciidocSource( "A link javadoc:1[] here.\n", LINKS );
+		String html = FastPathRenderer.render( source );
+		assertNotNull( html );
+		assertTrue( html.contains( ">a &lt;label&gt; with ] and '</a>" ), html );
+		assertEquals( converter.convert( source ), html );
+	}
+
+	@Test
+	public void unsupported() {
+		for ( String text : UNSUPPORTED ) {
+			assertNull( FastPathRenderer.render( new AsciidocSource( text, LINKS ) ), text );
+		}
+	}
+
+	@Test
+	public void generated() {
+		Random random = new Random( 42 );
+		int rendered = 0;
+		for ( int i = 0; i < 1000; i++ ) {
+			StringBuilder text = new StringBuilder();
+			int fragments = 1 + random.nextInt( 8 );
+			for ( int j = 0; j < fragments; j++ ) {
+				// mostly the plain fragments, so that a good share of the texts stays within the supported subset:
+				text.append( FRAGMENTS[random.nextInt( random.nextBoolean() ? 12 : FRAGMENTS.length )] )
+						.append( SEPARATORS[random.nextInt( SEPARATORS.length )] );
+			}
+			AsciidocSource source = new AsciidocSource( text.toString(), LINKS );
+			String html = FastPathRenderer.render( source );
+			if ( html != null ) {
+				assertEquals( converter.convert( source ), html, text.toString() );
+				rendered++;
+			}
+		}
+		assertTrue( rendered > 100, "Only " + rendered + " texts were rendered by the fast path" );
+	}
+}
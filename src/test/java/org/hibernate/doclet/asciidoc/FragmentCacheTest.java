@@ -0,0 +1,132 @@
+package org.hibernate.doclet.asciidoc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FragmentCacheTest {
+
+	private static final AsciidocSource SOURCE = new AsciidocSource(
+			"A link javadoc:0[] .\n", List.of( new AsciidocSource.Link( "../Some.html#", "Some" ) ) );
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void entriesAreReadBack() {
+		FragmentCache cache = FragmentCache.create( directory, FragmentCache.DEFAULT_MAX_SIZE, "settings" );
+		assertNull( cache.get( cache.key( SOURCE ) ) );
+
+		cache.put( cache.key( SOURCE ), "<p>html</p>" );
+		assertEquals( "<p>html</p>", cache.get( cache.key( SOURCE ) ) );
+		// another run with the same settings shares the entries:
+		FragmentCache other = FragmentCache.create( directory, FragmentCache.DEFAULT_MAX_SIZE, "settings" );
+		assertEquals( "<p>html</p>", other.get( other.key( SOURCE ) ) );
+	}
+
+	@Test
+	public void keysCoverTheSettingsAndTheLinks() {
+		FragmentCache cache = FragmentCache.create( directory, FragmentCache.DEFAULT_MAX_SIZE, "settings" );
+		cache.put( cache.key( SOURCE ), "<p>html</p>" );
+
+		FragmentCache otherSettings = FragmentCache.create( directory, FragmentCache.DEFAULT_MAX_SIZE, "other settings" );
+		assertNull( otherSettings.get( otherSettings.key( SOURCE ) ) );
+		AsciidocSource otherLink = new AsciidocSource(
+				SOURCE.text(), List.of( new AsciidocSource.Link( "../../Some.html#", "Some" ) ) );
+		assertNull( cache.get( cache.key( otherLink ) ) );
+		AsciidocSource otherLabel = new AsciidocSource(
+				SOURCE.text(), List.of( new AsciidocSource.Link( "../Some.html#", "Other" ) ) );
+		assertNull( cache.get( cache.key( otherLabel ) ) );
+	}
+
+	@Test
+	public void leastRecentlyUsedEntriesAreEvicted() throws IOException {
+		// room for two entries of 10 bytes each
+		FragmentCache cache = FragmentCache.create( directory, 25, "settings" );
+		long now = System.currentTimeMillis();
+		for ( int i = 0; i < 4; i++ ) {
+			cache.put( cache.key( block( i ) ), html( i ) );
+			// making the order explicit, rather than depending on the resolution of the file times:
+			Files.setLastModifiedTime( entryFile( html( i ) ), FileTime.fromMillis( now - 10_000 + i * 1000 ) );
+		}
+		// reading an entry makes it the most recently used one
+		assertEquals( html( 0 ), cache.get( cache.key( block( 0 ) ) ) );
+
+		cache.evict();
+
+		assertEquals( html( 0 ), cache.get( cache.key( block( 0 ) ) ) );
+		assertNull( cache.get( cache.key( block( 1 ) ) ) );
+		assertNull( cache.get( cache.key( block( 2 ) ) ) );
+		assertEquals( html( 3 ), cache.get( cache.key( block( 3 ) ) ) );
+	}
+
+	@Test
+	public void orphanedTemporaryFilesAreDeleted() throws IOException {
+		FragmentCache cache = FragmentCache.create( directory, FragmentCache.DEFAULT_MAX_SIZE, "settings" );
+		Path subdirectory = Files.createDirectories( directory.resolve( "ab" ) );
+		Path orphan = Files.writeString( subdirectory.resolve( "abcd.html12345.tmp" ), "partial" );
+		Files.setLastModifiedTime( orphan, FileTime.fromMillis( System.currentTimeMillis() - 2 * 60 * 60 * 1000L ) );
+		Path inProgress = Files.writeString( subdirectory.resolve( "abef.html67890.tmp" ), "partial" );
+
+		cache.evict();
+
+		assertFalse( Files.exists( orphan ) );
+		assertTrue( Files.exists( inProgress ) );
+	}
+
+	@Test
+	public void filesVanishingDuringTheEvictionAreSkipped() throws IOException {
+		FragmentCache cache = FragmentCache.create( directory, 25, "settings" );
+		for ( int i = 0; i < 4; i++ ) {
+			cache.put( cache.key( block( i ) ), html( i ) );
+		}
+		// listed by the walk, but gone by the time their attributes are read,
+		// like the files concurrent runs move in place or delete in the meantime
+		Path subdirectory = Files.createDirectories( directory.resolve( "ab" ) );
+		Path gone = subdirectory.resolve( "gone" );
+		Files.createSymbolicLink( subdirectory.resolve( "abcd.html12345.tmp" ), gone );
+		Files.createSymbolicLink( subdirectory.resolve( "abcd.html" ), gone );
+
+		cache.evict();
+
+		// the cache was trimmed all the same
+		int left = 0;
+		for ( int i = 0; i < 4; i++ ) {
+			if ( cache.get( cache.key( block( i ) ) ) != null ) {
+				left++;
+			}
+		}
+		assertTrue( left <= 2, left + " entries left" );
+	}
+
+	private static AsciidocSource block(int i) {
+		return AsciidocSource.of( "block " + i );
+	}
+
+	private static String html(int i) {
+		return "<p>html" + i + "\n";
+	}
+
+	private Path entryFile(String html) throws IOException {
+		try ( Stream<Path> files = Files.walk( directory ) ) {
+			for ( Path file : files.filter( Files::isRegularFile ).collect( Collectors.toList() ) ) {
+				if ( file.toString().endsWith( ".html" ) && Files.readString( file ).equals( html ) ) {
+					return file;
+				}
+			}
+		}
+		throw new AssertionError( "No entry for " + html );
+	}
+}
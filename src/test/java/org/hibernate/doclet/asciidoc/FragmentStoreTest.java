@@ -0,0 +1,98 @@
+package org.hibernate.doclet.asciidoc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Proxy;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import javax.lang.model.element.Element;
+
+import org.junit.jupiter.api.Test;
+
+public class FragmentStoreTest {
+
+	@Test
+	public void everyFragmentRoundTripsThroughTheFile() {
+		List<Element> elements = new ArrayList<>();
+		List<String> fragments = new ArrayList<>();
+		Path file;
+		// nothing fits in a single byte, so every fragment goes to the file
+		try ( FragmentStore store = FragmentStore.spilling( 1 ) ) {
+			for ( int i = 0; i < 50; i++ ) {
+				Element element = element( "element" + i );
+				String html = "<p>fragment " + i + ( i % 3 == 0 ? " « ünïcödé » 日本語 😀" : "" ) + "</p>";
+				elements.add( element );
+				fragments.add( html );
+				store.put( element, html );
+				if ( i % 10 == 0 ) {
+					// reading in between, before the file is done growing
+					assertEquals( fragments.get( 0 ), store.get( elements.get( 0 ) ) );
+				}
+			}
+			file = store.file();
+			assertNotNull( file );
+			assertTrue( Files.exists( file ) );
+
+			for ( int i = 0; i < elements.size(); i++ ) {
+				assertEquals( fragments.get( i ), store.get( elements.get( i ) ) );
+			}
+			// replacing a spilled fragment serves the new one
+			store.put( elements.get( 3 ), "<p>replaced ü</p>" );
+			store.put( elements.get( 4 ), "<p>replaced again</p>" );
+			assertEquals( "<p>replaced ü</p>", store.get( elements.get( 3 ) ) );
+			assertEquals( "<p>replaced again</p>", store.get( elements.get( 4 ) ) );
+			assertNull( store.get( element( "unknown" ) ) );
+		}
+		assertFalse( Files.exists( file ) );
+	}
+
+	@Test
+	public void truncatedFileFailsTheLookup() throws IOException {
+		try ( FragmentStore store = FragmentStore.spilling( 1 ) ) {
+			Element element = element( "element" );
+			store.put( element, "<p>fragment</p>" );
+			assertEquals( "<p>fragment</p>", store.get( element ) );
+			try ( FileChannel channel = FileChannel.open( store.file(), StandardOpenOption.WRITE ) ) {
+				channel.truncate( 4 );
+			}
+			assertThrows( UncheckedIOException.class, () -> store.get( element ) );
+		}
+	}
+
+	@Test
+	public void inMemoryStoreHasNoFile() {
+		try ( FragmentStore store = FragmentStore.inMemory() ) {
+			Element element = element( "element" );
+			store.put( element, "<p>fragment</p>" );
+			assertEquals( "<p>fragment</p>", store.get( element ) );
+			assertNull( store.file() );
+		}
+	}
+
+	private static Element element(String name) {
+		return (Element) Proxy.newProxyInstance( Element.class.getClassLoader(), new Class<?>[] { Element.class },
+				(proxy, method, args) -> {
+					switch ( method.getName() ) {
+						case "equals":
+							return proxy == args[0];
+						case "hashCode":
+							return System.identityHashCode( proxy );
+						case "toString":
+							return name;
+						default:
+							return null;
+					}
+				} );
+	}
+}
@@ -0,0 +1,181 @@
+package org.hibernate.doclet.asciidoc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+
+import com.sun.source.doctree.DocTree;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class IncrementalManifestTest {
+
+	private static final String A = "package p;\n"
+			+ "/**\n * A type.\n * @asciidoc The *A* type.\n */\n"
+			+ "public class A {\n"
+			+ "\t/**\n\t * A method.\n\t * @asciidoc The `a` method.\n\t */\n"
+			+ "\tpublic void a(int i) {\n\t}\n"
+			+ "}\n";
+	private static final String B = "package p;\n"
+			+ "/**\n * B type.\n * @asciidoc The *B* type.\n */\n"
+			+ "public class B {\n"
+			+ "}\n";
+
+	@TempDir
+	Path directory;
+
+	private Path sources;
+	private Path manifestDirectory;
+	// the HTML recorded for each block, the same for as long as the block doesn't change
+	private final Map<String, String> recorded = new HashMap<>();
+	private int conversions;
+
+	@BeforeEach
+	public void setUp() {
+		sources = directory.resolve( "sources" );
+		manifestDirectory = directory.resolve( "incremental" );
+	}
+
+	@Test
+	public void unchangedTypesAreReused() throws IOException {
+		assertEquals( Set.of( "p.A", "p.A#a(int)", "p.B" ), run( "settings", Map.of( "p/A.java", A, "p/B.java", B ) ) );
+
+		assertEquals( Set.of(), run( "settings", Map.of() ) );
+	}
+
+	@Test
+	public void editedMemberInvalidatesOnlyItsType() throws IOException {
+		run( "settings", Map.of( "p/A.java", A, "p/B.java", B ) );
+
+		assertEquals( Set.of( "p.A", "p.A#a(int)" ),
+				run( "settings", Map.of( "p/A.java", A.replace( "The `a` method.", "The edited `a` method." ) ) ) );
+		assertEquals( Set.of(), run( "settings", Map.of() ) );
+	}
+
+	@Test
+	public void truncatedFragmentsAreConvertedAgain() throws IOException {
+		run( "settings", Map.of( "p/A.java", A, "p/B.java", B ) );
+		Path fragments = fragmentsFile( "p.B" );
+		byte[] bytes = Files.readAllBytes( fragments );
+		Files.write( fragments, Arrays.copyOf( bytes, bytes.length - 3 ) );
+
+		assertEquals( Set.of( "p.B" ), run( "settings", Map.of() ) );
+		assertEquals( Set.of(), run( "settings", Map.of() ) );
+	}
+
+	@Test
+	public void duplicateFragmentsAreConvertedAgain() throws IOException {
+		run( "settings", Map.of( "p/A.java", A, "p/B.java", B ) );
+		Path fragments = fragmentsFile( "p.A" );
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try ( DataInputStream in = new DataInputStream( new ByteArrayInputStream( Files.readAllBytes( fragments ) ) );
+				DataOutputStream out = new DataOutputStream( bytes ) ) {
+			out.writeUTF( in.readUTF() );
+			int count = in.readInt();
+			out.writeInt( count + 1 );
+			for ( int i = 0; i < count; i++ ) {
+				String key = in.readUTF();
+				byte[] html = new byte[in.readInt()];
+				in.readFully( html );
+				out.writeUTF( key );
+				out.writeInt( html.length );
+				out.write( html );
+				if ( i == 0 ) {
+					// the same key again, with some other HTML
+					out.writeUTF( key );
+					out.writeInt( 1 );
+					out.write( 'x' );
+				}
+			}
+		}
+		Files.write( fragments, bytes.toByteArray() );
+
+		assertEquals( Set.of( "p.A", "p.A#a(int)" ), run( "settings", Map.of() ) );
+	}
+
+	@Test
+	public void removedTypeDeletesItsFragments() throws IOException {
+		run( "settings", Map.of( "p/A.java", A, "p/B.java", B ) );
+		assertTrue( Files.exists( fragmentsFile( "p.B" ) ) );
+		Files.delete( sources.resolve( "p/B.java" ) );
+
+		assertEquals( Set.of(), run( "settings", Map.of() ) );
+		assertFalse( Files.exists( fragmentsFile( "p.B" ) ) );
+		assertTrue( Files.exists( fragmentsFile( "p.A" ) ) );
+	}
+
+	@Test
+	public void changedSettingsInvalidateEverything() throws IOException {
+		run( "settings", Map.of( "p/A.java", A, "p/B.java", B ) );
+
+		assertEquals( Set.of( "p.A", "p.A#a(int)", "p.B" ), run( "other settings", Map.of() ) );
+		assertEquals( Set.of(), run( "other settings", Map.of() ) );
+	}
+
+	/**
+	 * Runs javadoc and goes through the blocks the way the doclet does:
+	 * plan, convert what changed, record the conversions, save the manifest.
+	 *
+	 * @return the names of the elements whose blocks got converted.
+	 */
+	private Set<String> run(String settings, Map<String, String> changedSources) throws IOException {
+		Set<String> converted = new TreeSet<>();
+		TestDoclet.run( sources, changedSources, environment -> {
+			IncrementalManifest manifest = IncrementalManifest.load( manifestDirectory, settings );
+			AsciidocSourceWriter writer = new AsciidocSourceWriter( environment.getDocTrees(),
+					new LinksHelper( environment.getElementUtils(), List.of(), Map.of() ), true );
+			try ( PrerenderedFragments reused = new PrerenderedFragments( FragmentStore.inMemory() ) ) {
+				Set<Element> changed = manifest.plan( environment.getDocTrees(), AsciidocPrerenderer.documentedElements( environment ), writer, reused );
+				for ( Element element : AsciidocPrerenderer.documentedElements( environment ) ) {
+					DocTree tag = AsciidocPrerenderer.asciidocTag( environment.getDocTrees().getDocCommentTree( element ) );
+					if ( tag == null ) {
+						continue;
+					}
+					String name = name( element );
+					String html = reused.html( tag, element );
+					if ( html == null ) {
+						assertTrue( changed.contains( element ), name );
+						converted.add( name );
+						html = "<p>" + name + " " + ++conversions + "</p>";
+						recorded.put( name, html );
+						manifest.record( element, tag, html );
+					}
+					else {
+						assertFalse( changed.contains( element ), name );
+						assertEquals( recorded.get( name ), html );
+					}
+				}
+				manifest.save();
+			}
+		} );
+		return converted;
+	}
+
+	private Path fragmentsFile(String type) {
+		return manifestDirectory.resolve( "types" ).resolve( CacheFiles.sha256( "type:" + type ) + ".fragments" );
+	}
+
+	private static String name(Element element) {
+		if ( element instanceof TypeElement ) {
+			return ( (TypeElement) element ).getQualifiedName().toString();
+		}
+		return name( element.getEnclosingElement() ) + "#" + element;
+	}
+}
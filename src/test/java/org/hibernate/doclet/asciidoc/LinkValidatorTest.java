@@ -0,0 +1,55 @@
+package org.hibernate.doclet.asciidoc;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LinkValidatorTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void linksAreCheckedAgainstTheGeneratedAnchors() throws IOException {
+		Path sources = directory.resolve( "sources" );
+		TestDoclet.write( sources, Map.of(
+				"p/q/Outer.java", "package p.q;\n"
+						+ "/** Outer. */\n"
+						+ "public class Outer<E> {\n"
+						+ "\t/** A constant. */\n"
+						+ "\tpublic static final int CONSTANT = 1;\n"
+						+ "\t/** A constructor. */\n"
+						+ "\tpublic Outer(int i) {\n\t}\n"
+						+ "\t/** A method. */\n"
+						+ "\tpublic <T extends Number> void take(java.util.List<T> list, T[] array, E e) {\n\t}\n"
+						+ "\t/** Varargs. */\n"
+						+ "\tpublic void many(String... values) {\n\t}\n"
+						+ "\tprivate void hidden() {\n\t}\n"
+						+ "\t/** Inner. */\n"
+						+ "\tpublic static class Inner {\n\t}\n"
+						+ "}\n",
+				"p/q/Doc.java", "package p.q;\n"
+						+ "/**\n"
+						+ " * Doc.\n"
+						+ " *\n"
+						+ " * @asciidoc Links to {@link Outer#take(java.util.List, Number[], Object)}, {@link Outer#Outer(int)},\n"
+						+ " * {@link Outer#many(String...)}, {@link Outer.Inner}, {@link Outer#CONSTANT},\n"
+						+ " * javadoc:Outer#take[] and a broken one: {@link Outer#hidden()}.\n"
+						+ " */\n"
+						+ "public class Doc {\n"
+						+ "}\n"
+		) );
+
+		String output = TestDoclet.javadoc( sources, directory.resolve( "docs" ), Asciidoclet.class,
+				"-quiet", "-Xdoclint:none", "--asciidoc-validate-links" );
+
+		// all the others point to anchors of the generated pages
+		assertTrue( output.contains( "1 link target(s) of the @asciidoc blocks are not generated by this run:" ), output );
+		assertTrue( output.contains( "p/q/Outer.html#hidden() linked from p.q.Doc" ), output );
+	}
+}
@@ -0,0 +1,80 @@
+package org.hibernate.doclet.asciidoc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import javax.lang.model.element.Element;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LinksHelperTest {
+
+	private static final Map<String, String> SOURCES = Map.of(
+			"p/q/Outer.java", "package p.q;\n"
+					+ "public class Outer<E> {\n"
+					+ "\tpublic int field;\n"
+					+ "\tpublic Outer(int i, java.util.Map.Entry<String, E> entry) {\n\t}\n"
+					+ "\tpublic <T extends Number> void generic(T[] array, java.util.List<T> list, E e, int... more) {\n\t}\n"
+					+ "\tpublic static class Nested {\n"
+					+ "\t\tpublic void run() {\n\t\t}\n"
+					+ "\t}\n"
+					+ "}\n",
+			"Top.java", "public class Top {\n}\n"
+	);
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void nestedTypeOfATwoSegmentPackage() throws IOException {
+		TestDoclet.run( directory, SOURCES, environment -> {
+			LinksHelper linksHelper = new LinksHelper( environment.getElementUtils(), List.of(), Map.of() );
+			Element nested = TestDoclet.type( environment, "p.q.Outer.Nested" );
+			Element run = TestDoclet.member( environment, "p.q.Outer.Nested", "run" );
+
+			assertEquals( "../../", linksHelper.relativeLink( nested ) );
+			assertEquals( "../../", linksHelper.relativeLink( run ) );
+			assertEquals( "p/q/Outer.Nested.html#", linksHelper.path( nested ) );
+			assertEquals( "p/q/Outer.Nested.html#run()", linksHelper.path( run ) );
+			assertEquals( "../../p/q/Outer.Nested.html#run()", linksHelper.javadocLink( run, nested ) );
+
+			Element top = TestDoclet.type( environment, "Top" );
+			assertEquals( "", linksHelper.relativeLink( top ) );
+			assertEquals( "Top.html#", linksHelper.path( top ) );
+			assertEquals( "p/q/Outer.Nested.html#", linksHelper.javadocLink( nested, top ) );
+		} );
+	}
+
+	@Test
+	public void membersHaveTheAnchorsOfTheStandardDoclet() throws IOException {
+		TestDoclet.run( directory, SOURCES, environment -> {
+			LinksHelper linksHelper = new LinksHelper( environment.getElementUtils(), List.of(), Map.of() );
+
+			assertEquals( "p/q/Outer.html#%3Cinit%3E(int,java.util.Map.Entry)",
+					linksHelper.path( TestDoclet.member( environment, "p.q.Outer", "<init>" ) ) );
+			assertEquals( "p/q/Outer.html#generic(T[],java.util.List,E,int...)",
+					linksHelper.path( TestDoclet.member( environment, "p.q.Outer", "generic" ) ) );
+			assertEquals( "p/q/Outer.html#field",
+					linksHelper.path( TestDoclet.member( environment, "p.q.Outer", "field" ) ) );
+		} );
+	}
+
+	@Test
+	public void packagesAndModulesHaveSummaries() throws IOException {
+		TestDoclet.run( directory, SOURCES, environment -> {
+			LinksHelper linksHelper = new LinksHelper( environment.getElementUtils(), List.of(), Map.of() );
+			Element pkg = environment.getElementUtils().getPackageElement( "p.q" );
+			Element module = environment.getElementUtils().getModuleElement( "java.base" );
+
+			assertEquals( "../../", linksHelper.relativeLink( pkg ) );
+			assertEquals( "p/q/package-summary.html#", linksHelper.path( pkg ) );
+			assertEquals( "", linksHelper.relativeLink( module ) );
+			assertEquals( "java.base/module-summary.html#", linksHelper.path( module ) );
+			assertEquals( "../../java.base/module-summary.html#", linksHelper.javadocLink( module, pkg ) );
+		} );
+	}
+}
@@ -0,0 +1,42 @@
+package org.hibernate.doclet.asciidoc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+public class PackageIndexTest {
+
+	@Test
+	public void modules() {
+		PackageIndex index = read(
+				"module:java.base\r\njava.lang\njava.util\n\nmodule:java.sql\njava.sql\njavax.sql",
+				"https://docs.example.org/api"
+		);
+		assertEquals( 4, index.size() );
+		assertEquals( "https://docs.example.org/api/java.base/", index.base( "java.lang" ) );
+		assertEquals( "https://docs.example.org/api/java.base/", index.base( "java.util" ) );
+		assertEquals( "https://docs.example.org/api/java.sql/", index.base( "javax.sql" ) );
+		assertNull( index.base( "module:java.base" ) );
+		assertNull( index.base( "java" ) );
+	}
+
+	@Test
+	public void lastOneWins() {
+		PackageIndex first = read( "org.example\norg.example.a\nörg.example\n", "https://first.example.org/" );
+		PackageIndex second = read( "org.example.a\norg.example.b\norg.example.b\n", "https://second.example.org/" );
+		PackageIndex index = first.and( second );
+		assertEquals( 4, index.size() );
+		assertEquals( "https://first.example.org/", index.base( "org.example" ) );
+		assertEquals( "https://first.example.org/", index.base( "örg.example" ) );
+		assertEquals( "https://second.example.org/", index.base( "org.example.a" ) );
+		assertEquals( "https://second.example.org/", index.base( "org.example.b" ) );
+	}
+
+	private static PackageIndex read(String content, String link) {
+		return PackageIndex.read( ByteBuffer.wrap( content.getBytes( StandardCharsets.UTF_8 ) ), link );
+	}
+}
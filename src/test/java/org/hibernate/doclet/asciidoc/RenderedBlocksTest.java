@@ -0,0 +1,100 @@
+package org.hibernate.doclet.asciidoc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import javax.lang.model.element.Element;
+
+import com.sun.source.doctree.DocTree;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class RenderedBlocksTest {
+
+	private static final Map<String, String> SOURCES = Map.of(
+			"p/Api.java", "package p;\n"
+					+ "/** Api. */\n"
+					+ "public interface Api {\n"
+					+ "\t/**\n"
+					+ "\t * Does something.\n"
+					+ "\t *\n"
+					+ "\t * @asciidoc Returns *something*.\n"
+					+ "\t */\n"
+					+ "\tObject get();\n"
+					+ "}\n",
+			"p/q/r/Impl.java", "package p.q.r;\n"
+					+ "/** Impl. */\n"
+					+ "public class Impl implements p.Api {\n"
+					+ "\tpublic Object get() {\n"
+					+ "\t\treturn null;\n"
+					+ "\t}\n"
+					+ "}\n"
+	);
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void repeatedBlocksAreRenderedOncePerRelativePath() throws IOException {
+		TestDoclet.run( directory, SOURCES, environment -> {
+			Element api = TestDoclet.member( environment, "p.Api", "get" );
+			Element impl = TestDoclet.member( environment, "p.q.r.Impl", "get" );
+			// the standard doclet renders the comment of the interface method for the implementation as well
+			List<DocTree> tags = List.of( AsciidocPrerenderer.asciidocTag(
+					environment.getDocTrees().getDocCommentTree( api ) ) );
+			AsciidocTaglet taglet = new AsciidocTaglet( new RenderedBlocks( RenderedBlocks.DEFAULT_MAX_SIZE ) );
+			taglet.init( environment, new TestDoclet() );
+
+			String html = taglet.toString( tags, api );
+			assertTrue( html.contains( "<strong>something</strong>" ), html );
+			assertSame( html, taglet.toString( tags, api ) );
+
+			// the links of a block would point elsewhere from a page of another package
+			String implHtml = taglet.toString( tags, impl );
+			assertEquals( html, implHtml );
+			assertNotSame( html, implHtml );
+			assertSame( implHtml, taglet.toString( tags, impl ) );
+			assertSame( html, taglet.toString( tags, api ) );
+
+			AsciidocTaglet uncached = new AsciidocTaglet( RenderedBlocks.disabled() );
+			uncached.init( environment, new TestDoclet() );
+			String converted = uncached.toString( tags, api );
+			assertEquals( html, converted );
+			assertNotSame( converted, uncached.toString( tags, api ) );
+		} );
+	}
+
+	@Test
+	public void sizeIsBounded() throws IOException {
+		TestDoclet.run( directory, SOURCES, environment -> {
+			Element api = TestDoclet.member( environment, "p.Api", "get" );
+			DocTree tag = AsciidocPrerenderer.asciidocTag( environment.getDocTrees().getDocCommentTree( api ) );
+			RenderedBlocks rendered = new RenderedBlocks( 20 );
+
+			rendered.put( tag, "../", "12345" );
+			rendered.put( tag, "../../", "67890" );
+			assertEquals( "12345", rendered.get( tag, "../" ) );
+			assertEquals( "67890", rendered.get( tag, "../../" ) );
+			// the least recently used one goes
+			rendered.get( tag, "../" );
+			rendered.put( tag, "../../../", "abc" );
+			assertEquals( "12345", rendered.get( tag, "../" ) );
+			assertNull( rendered.get( tag, "../../" ) );
+			assertEquals( "abc", rendered.get( tag, "../../../" ) );
+			// too large to be kept at all
+			rendered.put( tag, "", "01234567890" );
+			assertNull( rendered.get( tag, "" ) );
+			assertEquals( "12345", rendered.get( tag, "../" ) );
+
+			RenderedBlocks.disabled().put( tag, "../", "12345" );
+			assertNull( RenderedBlocks.disabled().get( tag, "../" ) );
+		} );
+	}
+}
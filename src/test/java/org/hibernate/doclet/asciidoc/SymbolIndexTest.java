@@ -0,0 +1,159 @@
+package org.hibernate.doclet.asciidoc;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.lang.model.element.Element;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SymbolIndexTest {
+
+	static final Map<String, String> SOURCES = Map.of(
+			"p/q/Outer.java", "package p.q;\n"
+					+ "public class Outer {\n"
+					+ "\tpublic static final int CONSTANT = 1;\n"
+					+ "\tpublic Outer(int i) {\n\t}\n"
+					+ "\tpublic void take(java.util.List<String> list) {\n\t}\n"
+					+ "\tpublic void take(String s) {\n\t}\n"
+					+ "\tpublic void many(String... values) {\n\t}\n"
+					+ "\tpublic static class Inner {\n"
+					+ "\t\tpublic void inner() {\n\t\t}\n"
+					+ "\t}\n"
+					+ "}\n",
+			"p/q/Same.java", "package p.q;\npublic class Same {\n}\n",
+			"p/r/Same.java", "package p.r;\npublic class Same {\n}\n"
+	);
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void typesAreResolvedByName() throws IOException {
+		TestDoclet.run( directory, SOURCES, environment -> {
+			SymbolIndex index = SymbolIndex.create( environment );
+			Element outer = TestDoclet.type( environment, "p.q.Outer" );
+			Element inner = TestDoclet.type( environment, "p.q.Outer.Inner" );
+
+			assertSame( outer, index.resolve( "Outer", null ) );
+			assertSame( outer, index.resolve( "p.q.Outer", null ) );
+			assertSame( inner, index.resolve( "Outer.Inner", null ) );
+			assertSame( inner, index.resolve( "Inner", null ) );
+			assertSame( inner, index.resolve( "p.q.Outer.Inner", null ) );
+			// not included, looked up on demand:
+			assertSame( TestDoclet.type( environment, "java.lang.String" ), index.resolve( "String", null ) );
+			assertSame( TestDoclet.type( environment, "java.util.List" ), index.resolve( "java.util.List", null ) );
+			assertNull( index.resolve( "Unknown", null ) );
+			assertFalse( index.isAmbiguous( "Unknown" ) );
+		} );
+	}
+
+	@Test
+	public void membersAreResolvedRelativeToTheContext() throws IOException {
+		TestDoclet.run( directory, SOURCES, environment -> {
+			SymbolIndex index = SymbolIndex.create( environment );
+			Element constant = TestDoclet.member( environment, "p.q.Outer", "CONSTANT" );
+
+			assertSame( constant, index.resolve( "Outer#CONSTANT", null ) );
+			assertSame( constant, index.resolve( "#CONSTANT", TestDoclet.type( environment, "p.q.Outer" ) ) );
+			assertSame( constant, index.resolve( "#CONSTANT", TestDoclet.member( environment, "p.q.Outer", "many" ) ) );
+			assertSame( TestDoclet.member( environment, "p.q.Outer.Inner", "inner" ),
+					index.resolve( "#inner()", TestDoclet.type( environment, "p.q.Outer.Inner" ) ) );
+			// the context of a nested type is the nested type itself
+			assertNull( index.resolve( "#CONSTANT", TestDoclet.type( environment, "p.q.Outer.Inner" ) ) );
+			assertNull( index.resolve( "#CONSTANT", null ) );
+			assertNull( index.resolve( "Outer#UNKNOWN", null ) );
+		} );
+	}
+
+	@Test
+	public void overloadsAreResolvedByTheirParameters() throws IOException {
+		TestDoclet.run( directory, SOURCES, environment -> {
+			SymbolIndex index = SymbolIndex.create( environment );
+			List<Element> take = TestDoclet.members( environment, "p.q.Outer", "take" );
+			Element takeList = take.get( 0 );
+			Element takeString = take.get( 1 );
+
+			// without the parameters, the first overload, just like javadoc
+			assertSame( takeList, index.resolve( "Outer#take", null ) );
+			assertSame( takeList, index.resolve( "Outer#take(java.util.List)", null ) );
+			assertSame( takeList, index.resolve( "Outer#take(List)", null ) );
+			assertSame( takeString, index.resolve( "Outer#take(String)", null ) );
+			assertSame( takeString, index.resolve( "Outer#take( java.lang.String )", null ) );
+			assertNull( index.resolve( "Outer#take(int)", null ) );
+			assertSame( TestDoclet.member( environment, "p.q.Outer", "<init>" ), index.resolve( "Outer#Outer(int)", null ) );
+		} );
+	}
+
+	@Test
+	public void varargsAreWrittenEitherWay() throws IOException {
+		TestDoclet.run( directory, SOURCES, environment -> {
+			SymbolIndex index = SymbolIndex.create( environment );
+			Element many = TestDoclet.member( environment, "p.q.Outer", "many" );
+
+			assertSame( many, index.resolve( "Outer#many(String...)", null ) );
+			assertSame( many, index.resolve( "Outer#many(java.lang.String ...)", null ) );
+			assertSame( many, index.resolve( "Outer#many(String[])", null ) );
+		} );
+	}
+
+	@Test
+	public void sharedSimpleNamesAreAmbiguous() throws IOException {
+		TestDoclet.run( directory, SOURCES, environment -> {
+			SymbolIndex index = SymbolIndex.create( environment );
+
+			assertNull( index.resolve( "Same", null ) );
+			assertTrue( index.isAmbiguous( "Same" ) );
+			assertTrue( index.isAmbiguous( "Same#member" ) );
+			assertSame( TestDoclet.type( environment, "p.q.Same" ), index.resolve( "p.q.Same", null ) );
+			assertSame( TestDoclet.type( environment, "p.r.Same" ), index.resolve( "p.r.Same", null ) );
+			assertFalse( index.isAmbiguous( "p.q.Same" ) );
+		} );
+	}
+
+	@Test
+	public void simpleNamesAreResolvedWithinTheScopeOfTheContextFirst() throws IOException {
+		Map<String, String> sources = new HashMap<>( SOURCES );
+		sources.put( "p/s/Importer.java", "package p.s;\nimport p.q.Same;\npublic class Importer {\n"
+				+ "\tpublic static class Inner {\n\t}\n\tpublic void use() {\n\t}\n}\n" );
+		sources.put( "p/t/Star.java", "package p.t;\nimport p.r.*;\npublic class Star {\n}\n" );
+		TestDoclet.run( directory, sources, environment -> {
+			SymbolIndex index = SymbolIndex.create( environment );
+			Element importer = TestDoclet.type( environment, "p.s.Importer" );
+			Element qSame = TestDoclet.type( environment, "p.q.Same" );
+			Element rSame = TestDoclet.type( environment, "p.r.Same" );
+
+			assertNull( index.resolve( "Same", null ) );
+			assertNull( index.resolve( "Inner", null ) );
+			// the single-type import
+			assertSame( qSame, index.resolve( "Same", TestDoclet.member( environment, "p.s.Importer", "use" ) ) );
+			// the package
+			assertSame( rSame, index.resolve( "Same", TestDoclet.type( environment, "p.r.Same" ) ) );
+			// the on-demand import
+			assertSame( rSame, index.resolve( "Same", TestDoclet.type( environment, "p.t.Star" ) ) );
+			// the nested types of the enclosing types
+			assertSame( TestDoclet.type( environment, "p.s.Importer.Inner" ), index.resolve( "Inner", importer ) );
+			assertSame( TestDoclet.type( environment, "p.q.Outer.Inner" ),
+					index.resolve( "Inner", TestDoclet.member( environment, "p.q.Outer", "many" ) ) );
+			assertSame( TestDoclet.member( environment, "p.q.Outer.Inner", "inner" ),
+					index.resolve( "Outer.Inner#inner()", TestDoclet.type( environment, "p.q.Same" ) ) );
+			// still the included types and java.lang when not in scope
+			assertSame( TestDoclet.type( environment, "p.q.Outer" ), index.resolve( "Outer", importer ) );
+			assertSame( TestDoclet.type( environment, "java.lang.String" ), index.resolve( "String", importer ) );
+		} );
+	}
+
+	@Test
+	public void emptyIndexResolvesNothing() {
+		assertNull( SymbolIndex.EMPTY.resolve( "String", null ) );
+		assertFalse( SymbolIndex.EMPTY.isAmbiguous( "String" ) );
+	}
+}
@@ -0,0 +1,171 @@
+package org.hibernate.doclet.asciidoc;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.DocumentationTool;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import jdk.javadoc.doclet.Doclet;
+import jdk.javadoc.doclet.DocletEnvironment;
+import jdk.javadoc.doclet.Reporter;
+
+/**
+ * Runs javadoc on test sources and hands the environment over to the test while the doclet is running,
+ * as the environment is only usable until the doclet returns.
+ * Also runs the actual doclet on test sources, see {@link #javadoc(Path, Path, Class, String...)}.
+ */
+public final class TestDoclet implements Doclet {
+
+	private static Consumer<DocletEnvironment> action;
+	private static Throwable failure;
+
+	/**
+	 * Writes the sources, keyed by their path relative to the directory, e.g. {@code p/A.java},
+	 * and runs javadoc on all the sources of the directory.
+	 */
+	static void run(Path directory, Map<String, String> sources, Consumer<DocletEnvironment> action) throws IOException {
+		write( directory, sources );
+		TestDoclet.action = action;
+		try {
+			StringWriter output = new StringWriter();
+			boolean success = call( directory, null, TestDoclet.class, List.of( "-quiet" ), output );
+			// the assertions of the action fail the test, rather than the doclet
+			if ( failure instanceof Error ) {
+				throw (Error) failure;
+			}
+			if ( failure instanceof RuntimeException ) {
+				throw (RuntimeException) failure;
+			}
+			assertTrue( success, output.toString() );
+		}
+		finally {
+			TestDoclet.action = null;
+			TestDoclet.failure = null;
+		}
+	}
+
+	/**
+	 * Runs the doclet, along with the Asciidoc taglet, on all the sources of the directory.
+	 *
+	 * @param output where the docs are generated.
+	 * @return what javadoc printed, e.g. the warnings.
+	 */
+	static String javadoc(Path sources, Path output, Class<? extends Doclet> doclet, String... options)
+			throws IOException {
+		List<String> allOptions = new ArrayList<>( List.of( "-taglet", AsciidocTaglet.class.getName() ) );
+		allOptions.addAll( List.of( options ) );
+		StringWriter printed = new StringWriter();
+		assertTrue( call( sources, output, doclet, allOptions, printed ), printed.toString() );
+		return printed.toString();
+	}
+
+	/**
+	 * @return what javadoc printed while failing.
+	 */
+	static String failingJavadoc(Path sources, Path output, Class<? extends Doclet> doclet, String... options)
+			throws IOException {
+		List<String> allOptions = new ArrayList<>( List.of( "-taglet", AsciidocTaglet.class.getName() ) );
+		allOptions.addAll( List.of( options ) );
+		StringWriter printed = new StringWriter();
+		assertFalse( call( sources, output, doclet, allOptions, printed ), printed.toString() );
+		return printed.toString();
+	}
+
+	static void write(Path directory, Map<String, String> sources) throws IOException {
+		for ( Map.Entry<String, String> source : sources.entrySet() ) {
+			Path file = directory.resolve( source.getKey() );
+			Files.createDirectories( file.getParent() );
+			Files.writeString( file, source.getValue() );
+		}
+	}
+
+	private static boolean call(Path sources, Path output, Class<? extends Doclet> doclet, List<String> options,
+			StringWriter printed) throws IOException {
+		List<Path> files;
+		try ( Stream<Path> paths = Files.walk( sources ) ) {
+			files = paths.filter( p -> p.toString().endsWith( ".java" ) ).collect( Collectors.toList() );
+		}
+		DocumentationTool tool = ToolProvider.getSystemDocumentationTool();
+		try ( StandardJavaFileManager fm = tool.getStandardFileManager( null, null, null ) ) {
+			if ( output != null ) {
+				fm.setLocationFromPaths( DocumentationTool.Location.DOCUMENTATION_OUTPUT,
+						List.of( Files.createDirectories( output ) ) );
+				fm.setLocationFromPaths( DocumentationTool.Location.TAGLET_PATH, List.of( Path.of(
+						AsciidocTaglet.class.getProtectionDomain().getCodeSource().getLocation().getPath() ) ) );
+			}
+			try ( PrintWriter out = new PrintWriter( printed ) ) {
+				return tool.getTask( out, fm, null, doclet, options, fm.getJavaFileObjectsFromPaths( files ) ).call();
+			}
+		}
+	}
+
+	static TypeElement type(DocletEnvironment environment, String name) {
+		return environment.getElementUtils().getTypeElement( name );
+	}
+
+	/**
+	 * @return the members of the type with the given name, e.g. the overloads of a method.
+	 */
+	static List<Element> members(DocletEnvironment environment, String type, String name) {
+		List<Element> members = new ArrayList<>();
+		for ( Element member : type( environment, type ).getEnclosedElements() ) {
+			if ( member.getSimpleName().contentEquals( name ) ) {
+				members.add( member );
+			}
+		}
+		return members;
+	}
+
+	static Element member(DocletEnvironment environment, String type, String name) {
+		return members( environment, type, name ).get( 0 );
+	}
+
+	@Override
+	public void init(Locale locale, Reporter reporter) {
+	}
+
+	@Override
+	public String getName() {
+		return "test";
+	}
+
+	@Override
+	public Set<? extends Option> getSupportedOptions() {
+		return Set.of();
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latest();
+	}
+
+	@Override
+	public boolean run(DocletEnvironment environment) {
+		try {
+			action.accept( environment );
+			return true;
+		}
+		catch (RuntimeException | Error e) {
+			failure = e;
+			return false;
+		}
+	}
+}